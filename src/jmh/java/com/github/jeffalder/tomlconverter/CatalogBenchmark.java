@@ -0,0 +1,58 @@
+package com.github.jeffalder.tomlconverter;
+
+import com.github.jeffalder.tomlconverter.data.Dependency;
+import com.github.jeffalder.tomlconverter.data.GVACoordinates;
+import com.github.jeffalder.tomlconverter.data.GroupVersionEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the catalog from the collected dependencies: classifier grouping, shared version detection, and the whole thing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CatalogBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    int libraries;
+
+    private List<Dependency> dependencies;
+    private Set<GVACoordinates> classifierGroups;
+
+    @Setup
+    public void setup() {
+        dependencies = SyntheticBuild.dependencies(libraries);
+        classifierGroups = Catalog.buildClassifierGroups(dependencies);
+    }
+
+    @Benchmark
+    public Set<GVACoordinates> buildClassifierGroups() {
+        return Catalog.buildClassifierGroups(dependencies);
+    }
+
+    @Benchmark
+    public Set<GroupVersionEntry> identifySharedVersions() {
+        return Catalog.identifySharedVersions(classifierGroups);
+    }
+
+    @Benchmark
+    public Catalog from() {
+        return Catalog.from(dependencies);
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.jeffalder.tomlconverter;
+
+import com.github.jeffalder.tomlconverter.data.Dependency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Generates the inputs for the benchmarks: a set of dependencies that looks like a large multi-project build,
+ * and a build file that uses them.
+ *
+ * <p>Everything is seeded, so every run and every fork sees exactly the same inputs.
+ */
+public final class SyntheticBuild {
+    private static final long SEED = 0x70_6d_6cL;
+
+    private SyntheticBuild() {
+    }
+
+    /**
+     * <p>Each group has ten libraries. Half of the groups use a single version for all of them, so they end up
+     * in the {@code [versions]} table. One library in twenty also has a {@code tests} classifier, and one in fifty
+     * has no version at all.
+     *
+     * @return exactly {@code libraries} unique dependencies (plus the classifier variants)
+     */
+    public static List<Dependency> dependencies(final int libraries) {
+        final var random = new Random(SEED);
+        final var dependencies = new ArrayList<Dependency>(libraries + libraries / 20);
+
+        for (var i = 0; i < libraries; i++) {
+            final var groupIndex = i / 10;
+            final var group = "org.example.group" + groupIndex + (groupIndex % 3 == 0 ? ".core" : "");
+            final var name = "library-" + i;
+            final String version;
+            if (i % 50 == 7) {
+                version = null;
+            } else if (groupIndex % 2 == 0) {
+                version = "1." + groupIndex % 17 + ".0";
+            } else {
+                version = random.nextInt(5) + "." + random.nextInt(20) + "." + random.nextInt(10);
+            }
+
+            dependencies.add(Dependency.of(group, name, version, null));
+            if (i % 20 == 3) {
+                dependencies.add(Dependency.of(group, name, version, "tests"));
+            }
+        }
+
+        return dependencies;
+    }
+
+    /**
+     * <p>One line in ten declares one of the dependencies, in the mix of notations seen in real build files.
+     * The rest are comments, blocks, and other strings the rewriter has to read past.
+     *
+     * @return {@code lines} lines of a build.gradle file
+     */
+    public static List<String> buildFile(final List<Dependency> dependencies, final int lines) {
+        final var random = new Random(SEED);
+        final var buildFile = new ArrayList<String>(lines);
+
+        for (var i = 0; i < lines; i++) {
+            if (i % 10 != 0) {
+                buildFile.add(filler(i));
+                continue;
+            }
+
+            final var dependency = dependencies.get(random.nextInt(dependencies.size()));
+            final var coordinates = dependency.getGroup() + ":" + dependency.getName()
+                    + (dependency.getVersion() == null ? "" : ":" + dependency.getVersion())
+                    + (dependency.getClassifier() == null ? "" : ":" + dependency.getClassifier());
+            switch (random.nextInt(5)) {
+                case 0:
+                    buildFile.add("    implementation '" + coordinates + "'");
+                    break;
+                case 1:
+                    buildFile.add("    testImplementation(\"" + coordinates + "\")");
+                    break;
+                case 2:
+                    buildFile.add("    api platform('" + coordinates + "')");
+                    break;
+                case 3:
+                    buildFile.add("    implementation group: '" + dependency.getGroup() + "', name: '" + dependency.getName() + "'"
+                            + (dependency.getVersion() == null ? "" : ", version: '" + dependency.getVersion() + "'")
+                            + (dependency.getClassifier() == null ? "" : ", classifier: '" + dependency.getClassifier() + "'"));
+                    break;
+                default:
+                    buildFile.add("    runtimeOnly \"" + dependency.getGroup() + ":" + dependency.getName() + ":${someVersion}\"");
+                    break;
+            }
+        }
+
+        return buildFile;
+    }
+
+    private static String filler(final int i) {
+        switch (i % 4) {
+            case 0:
+                return "    // line " + i + " explains why 'org.example:not-a-dependency' is here";
+            case 1:
+                return "    tasks.named('task" + i + "') { dependsOn project(':sub" + i + "') }";
+            case 2:
+                return "    ext.property" + i + " = \"value-" + i + "\"";
+            default:
+                return "}";
+        }
+    }
+}
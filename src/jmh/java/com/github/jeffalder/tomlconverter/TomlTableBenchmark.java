@@ -0,0 +1,71 @@
+package com.github.jeffalder.tomlconverter;
+
+import com.github.jeffalder.tomlconverter.data.LibraryEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Key allocation and writing for the {@code [libraries]} table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TomlTableBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    int libraries;
+
+    private List<LibraryEntry> rows;
+    private TomlTable<LibraryEntry> table;
+
+    @Setup
+    public void setup() {
+        rows = Catalog.buildClassifierGroups(SyntheticBuild.dependencies(libraries)).stream()
+                .map(coordinates -> new LibraryEntry(coordinates, null))
+                .collect(toUnmodifiableList());
+        table = new TomlTable<>("libraries");
+        table.addAll(rows);
+    }
+
+    @Benchmark
+    public TomlTable<LibraryEntry> add() {
+        final var result = new TomlTable<LibraryEntry>("libraries");
+        for (final var row : rows) {
+            result.add(row);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public TomlTable<LibraryEntry> addAll() {
+        final var result = new TomlTable<LibraryEntry>("libraries");
+        result.addAll(rows);
+        return result;
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        try (final var writer = new BufferedWriter(Writer.nullWriter())) {
+            table.write(new TomlWriter(writer));
+        }
+    }
+}
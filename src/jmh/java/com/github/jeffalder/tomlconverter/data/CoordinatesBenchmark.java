@@ -0,0 +1,73 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import com.github.jeffalder.tomlconverter.SyntheticBuild;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Hashing the coordinate types, both on their own and the way the tasks use them: as set and map keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CoordinatesBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    int libraries;
+
+    private List<Dependency> dependencies;
+    private List<GVACoordinates> coordinates;
+
+    @Setup
+    public void setup() {
+        dependencies = SyntheticBuild.dependencies(libraries);
+        coordinates = dependencies.stream()
+                .map(dependency -> new GVACoordinates(dependency.getGroup(), dependency.getName(), dependency.getVersion())
+                        .addClassifiers(new HashSet<>(singleton(dependency.getClassifier()))))
+                .collect(toUnmodifiableList());
+    }
+
+    @Benchmark
+    public void dependencyHashCode(final Blackhole blackhole) {
+        for (final var dependency : dependencies) {
+            blackhole.consume(dependency.hashCode());
+        }
+    }
+
+    @Benchmark
+    public Set<Dependency> dependencyHashSet() {
+        return new HashSet<>(dependencies);
+    }
+
+    @Benchmark
+    public void gvaCoordinatesHashCode(final Blackhole blackhole) {
+        for (final var coordinate : coordinates) {
+            blackhole.consume(coordinate.hashCode());
+        }
+    }
+
+    @Benchmark
+    public Set<GVACoordinates> gvaCoordinatesHashSet() {
+        return new HashSet<>(coordinates);
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import com.github.jeffalder.tomlconverter.Catalog;
+import com.github.jeffalder.tomlconverter.SyntheticBuild;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewriting a whole build file against the whole catalog, and building the engine for that catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RewriteEngineBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    int libraries;
+
+    @Param({"1000", "10000", "100000"})
+    int lines;
+
+    private List<BuildGradleReplacer> replacers;
+    private List<String> buildFile;
+    private RewriteEngine engine;
+
+    @Setup
+    public void setup() {
+        final var dependencies = SyntheticBuild.dependencies(libraries);
+        replacers = Catalog.from(dependencies).createReplacers();
+        buildFile = SyntheticBuild.buildFile(dependencies, lines);
+        engine = new RewriteEngine(replacers);
+    }
+
+    @Benchmark
+    public void rewrite(final Blackhole blackhole) {
+        for (final var line : buildFile) {
+            blackhole.consume(engine.rewrite(line));
+        }
+    }
+
+    @Benchmark
+    public RewriteEngine compile() {
+        return new RewriteEngine(replacers);
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.jeffalder.tomlconverter;
+
+import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
+import com.github.jeffalder.tomlconverter.data.Dependency;
+import com.github.jeffalder.tomlconverter.data.GVACoordinates;
+import com.github.jeffalder.tomlconverter.data.GroupVersionEntry;
+import com.github.jeffalder.tomlconverter.data.LibraryEntry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.*;
+
+/**
+ * <p>The contents of a {@literal libs.versions.toml} file: the {@code [versions]} and {@code [libraries]}
+ * tables derived from a set of unique dependencies.
+ *
+ * <p>A catalog can also be merged into an {@link ExistingCatalog}. Everything already in it keeps its key,
+ * and only the libraries that aren't in it yet get new keys, worked around the existing ones.
+ */
+public class Catalog {
+    private final TomlTable<GroupVersionEntry> versionTable = new TomlTable<>("versions");
+    private final TomlTable<LibraryEntry> libraryTable = new TomlTable<>("libraries");
+    private final List<String> otherLines;
+
+    private Catalog(final List<String> otherLines) {
+        this.otherLines = otherLines;
+    }
+
+    public static Catalog from(final Collection<Dependency> dependencies) {
+        return from(dependencies, ExistingCatalog.empty());
+    }
+
+    public static Catalog from(final Collection<Dependency> dependencies, final ExistingCatalog existing) {
+        final var catalog = new Catalog(existing.getOtherLines());
+
+        final var dependencyClassifierSets = buildClassifierGroups(dependencies).stream()
+                .collect(toMap(identity(), identity()));
+
+        // existing libraries keep their keys, and pick up the classifiers used now
+        for (final var library : existing.getLibraries().entrySet()) {
+            final var coordinates = library.getValue();
+            final var used = dependencyClassifierSets.remove(coordinates);
+            if (used != null) {
+                coordinates.addClassifiers(used.getClassifiers());
+            }
+            catalog.libraryTable.put(library.getKey(), new LibraryEntry(coordinates, existing.getVersionRef(library.getKey())));
+        }
+        existing.getVersions().forEach(catalog.versionTable::put);
+
+        final Map<String, String> versionKeys = new HashMap<>();
+        for (final var entry : catalog.versionTable) {
+            versionKeys.put(entry.getValue().getStableId(), entry.getKey());
+        }
+
+        final var sharedVersions = identifySharedVersions(dependencyClassifierSets.keySet()).stream()
+                .filter(entry -> !versionKeys.containsKey(entry.getStableId()))
+                .collect(toSet());
+        catalog.versionTable.addAll(sharedVersions);
+
+        for (final var entry : catalog.versionTable) {
+            versionKeys.putIfAbsent(entry.getValue().getStableId(), entry.getKey());
+        }
+
+        final var libraries = encodeLibraries(dependencyClassifierSets.keySet(), versionKeys);
+        catalog.libraryTable.addAll(libraries);
+
+        return catalog;
+    }
+
+    public TomlTable<GroupVersionEntry> getVersionTable() {
+        return versionTable;
+    }
+
+    public TomlTable<LibraryEntry> getLibraryTable() {
+        return libraryTable;
+    }
+
+    /**
+     * @return one {@link BuildGradleReplacer} for each library and classifier, in key order
+     */
+    public List<BuildGradleReplacer> createReplacers() {
+        final var replacers = new ArrayList<BuildGradleReplacer>();
+        for(final var entry : libraryTable) {
+            for (final var classifier : entry.getValue().getClassifiers()) {
+                replacers.add(new BuildGradleReplacer(entry.getKey(), entry.getValue(), classifier));
+            }
+        }
+        return replacers;
+    }
+
+    public void write(final Writer writer) throws IOException {
+        final var toml = new TomlWriter(writer);
+        versionTable.write(toml);
+        libraryTable.write(toml);
+        for (final var line : otherLines) {
+            toml.raw(line).endLine();
+        }
+    }
+
+    /**
+     * @return one {@link GVACoordinates} for each group, name and version, with the classifiers used with it
+     */
+    static Set<GVACoordinates> buildClassifierGroups(final Collection<Dependency> dependencies) {
+        // each library is its own key, so the only allocation for a dependency of a library already seen is the lookup key
+        final var libraries = new HashMap<GVACoordinates, GVACoordinates>();
+        for (final var dependency : dependencies) {
+            final var key = new GVACoordinates(dependency.getGroup(), dependency.getName(), dependency.getVersion());
+            final var library = libraries.putIfAbsent(key, key);
+            (library == null ? key : library).addClassifier(dependency.getClassifier());
+        }
+
+        return libraries.keySet();
+    }
+
+    /**
+     * @param versionKeys the version table keys, by {@link GroupVersionEntry#getStableId()}
+     */
+    private static List<LibraryEntry> encodeLibraries(final Set<GVACoordinates> dependencyClassifierSets, final Map<String, String> versionKeys) {
+        return dependencyClassifierSets.stream()
+                .map(dep -> new LibraryEntry(dep, versionKeys.get(dep.getGroup() + ":" + dep.getVersion())))
+                .collect(toUnmodifiableList());
+    }
+
+    /**
+     * There's limited benefit to the shared versions section of the libs.versions.toml file.
+     * I also want to avoid making the version shared <em>solely</em> due to habit. The requirements are:
+     * <ol>
+     *     <li>Shared versions apply to an entire group, not across groups or to a some subgroup</li>
+     *     <li>Shared versions must all be explicitly stated -- don't reference a version if one wasn't referenced in build.gradle</li>
+     *     <li><em>More than one</em> dependency in the group must use the version, or there's no point in "sharing"</li>
+     *     <li>There must be <em>exactly one</em> unique version in the group or the prefix gets confusing</li>
+     *     <li>Classifiers are ignored, so {@code foo:bar:1.0:test} and {@code foo:bar:1.0} are considered only one set of coordinates</li>
+     * </ol>
+     *
+     * <p>This is all best-effort. I am less worried about the "best" answer, more a
+     * a "good enough" answer for generated Toml.</p>
+     */
+    static Set<GroupVersionEntry> identifySharedVersions(final Set<GVACoordinates> dependencyClassifierSets) {
+        final var allVersionsByGroup = dependencyClassifierSets.stream()
+                .filter(dep -> dep.getVersion() != null)
+                .map(dep -> Map.entry(dep.getGroup(), dep.getVersion()))
+                .collect(groupingBy(Map.Entry::getKey, mapping(Map.Entry::getValue, toList())));
+
+        return allVersionsByGroup.entrySet().stream()
+                .filter(entry -> entry.getValue().size() > 1) // there must be MORE THAN ONE reference to this group and version
+                .filter(entry -> Set.copyOf(entry.getValue()).size() == 1) // there must be EXACTLY ONE unique version
+                .map(entry -> new GroupVersionEntry(entry.getKey(), entry.getValue().get(0)))
+                .collect(toSet());
+    }
+}
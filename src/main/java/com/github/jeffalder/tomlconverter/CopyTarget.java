@@ -0,0 +1,53 @@
+package com.github.jeffalder.tomlconverter;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Where a prepared file goes, and the {@link OutputMode} it was written in, which says whether it's copied over
+ * the target or applied to it as a diff.
+ */
+public final class CopyTarget implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private final OutputMode mode;
+
+    public CopyTarget(final String path, final OutputMode mode) {
+        this.path = Objects.requireNonNull(path);
+        this.mode = Objects.requireNonNull(mode);
+    }
+
+    /**
+     * @return the absolute path of the file the prepared file replaces
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public OutputMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final var that = (CopyTarget) o;
+        return path.equals(that.path) && mode == that.mode;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * path.hashCode() + mode.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + mode + ")";
+    }
+}
@@ -0,0 +1,242 @@
+package com.github.jeffalder.tomlconverter;
+
+import com.github.jeffalder.tomlconverter.data.Dependency;
+import com.github.jeffalder.tomlconverter.data.GVACoordinates;
+import com.github.jeffalder.tomlconverter.data.GroupVersionEntry;
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>The keys already assigned in a {@literal libs.versions.toml} file, for incremental conversion.
+ * Versions and libraries that are in the file keep their keys, and any other tables, like {@code [bundles]}
+ * and {@code [plugins]}, are kept exactly as they are.
+ *
+ * <p>Libraries can be {@code { module = "group:name" }} tables like this plugin writes, {@code { group = "...", name = "..." }}
+ * tables, or {@code "group:name:version"} strings, with or without a version or version reference. Anything more elaborate, like rich versions, can't be merged,
+ * and neither can comments in the {@code [versions]} or {@code [libraries]} tables.
+ */
+public class ExistingCatalog {
+    private static final Pattern TABLE = Pattern.compile("\\[\\s*([A-Za-z0-9_-]+)\\s*]");
+    private static final Pattern ROW = Pattern.compile("([A-Za-z0-9_-]+)\\s*=\\s*(.*)");
+    private static final Pattern FIELD = Pattern.compile("\\s*([A-Za-z.]+)\\s*=\\s*\"([^\"]*)\"\\s*");
+    private static final Pattern STRING = Pattern.compile("\"([^\"]*)\"");
+
+    private final List<String> lines;
+    private final Map<String, String> versions = new LinkedHashMap<>();
+    private final Map<String, Map<String, String>> libraries = new LinkedHashMap<>();
+    private final List<String> otherLines = new ArrayList<>();
+    private final Set<GVACoordinates> coordinates = new HashSet<>();
+
+    private ExistingCatalog(final List<String> lines) {
+        this.lines = List.copyOf(lines);
+    }
+
+    public static ExistingCatalog empty() {
+        return new ExistingCatalog(List.of());
+    }
+
+    public static ExistingCatalog read(final File file) throws IOException {
+        return read(file, false);
+    }
+
+    /**
+     * Reads a catalog only to find out which libraries it has, for {@link #contains(Dependency)}. Comments, and lines
+     * and libraries in forms the converter doesn't understand, like rich versions, are skipped instead of failing the read,
+     * so the catalog can't be merged into.
+     */
+    public static ExistingCatalog readLibraries(final File file) throws IOException {
+        return read(file, true);
+    }
+
+    private static ExistingCatalog read(final File file, final boolean lenient) throws IOException {
+        final var catalog = new ExistingCatalog(Files.readAllLines(file.toPath()));
+
+        String table = null;
+        for (var i = 0; i < catalog.lines.size(); i++) {
+            final var line = catalog.lines.get(i);
+            final var text = lenient ? withoutComment(line) : line;
+            final var header = TABLE.matcher(text.strip());
+            if (header.matches()) {
+                table = header.group(1);
+            }
+
+            if (!"versions".equals(table) && !"libraries".equals(table)) {
+                catalog.otherLines.add(line);
+                continue;
+            }
+
+            if (header.matches() || text.isBlank()) {
+                continue;
+            }
+
+            final var row = ROW.matcher(text.strip());
+            final var value = row.matches() ? parseValue(row.group(2)) : null;
+            final var understood = value != null && ("versions".equals(table)
+                    ? value.keySet().equals(Set.of("version"))
+                    : value.containsKey("group") && value.containsKey("name"));
+            if (!understood) {
+                if (lenient) {
+                    continue;
+                }
+                throw new GradleException("Unable to merge into " + file + ", line " + (i + 1) + " isn't a form the converter understands: " + line);
+            }
+
+            if ("versions".equals(table)) {
+                catalog.versions.put(row.group(1), value.get("version"));
+            } else {
+                catalog.libraries.put(row.group(1), value);
+            }
+        }
+
+        final var libraries = catalog.libraries.entrySet().iterator();
+        while (libraries.hasNext()) {
+            final var library = libraries.next();
+            final var versionRef = library.getValue().get("version.ref");
+            if (versionRef != null && !catalog.versions.containsKey(versionRef)) {
+                if (lenient) {
+                    // most likely a rich version, which was skipped
+                    libraries.remove();
+                    continue;
+                }
+                throw new GradleException("Unable to merge into " + file + ", library " + library.getKey() + " refers to a missing version " + versionRef);
+            }
+        }
+        catalog.coordinates.addAll(catalog.getLibraries().values());
+
+        return catalog;
+    }
+
+    /**
+     * @return the line up to any comment, which starts at a {@code #} outside of a string
+     */
+    private static String withoutComment(final String line) {
+        char quote = 0;
+        for (var i = 0; i < line.length(); i++) {
+            final var c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else if (c == '\\' && quote == '"') {
+                    i++;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '#') {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * @return the version table keys mapped to their entries. Each entry's group is the group of the libraries that use it.
+     */
+    Map<String, GroupVersionEntry> getVersions() {
+        final var groups = new HashMap<String, String>();
+        for (final var library : libraries.values()) {
+            if (library.containsKey("version.ref")) {
+                groups.putIfAbsent(library.get("version.ref"), library.get("group"));
+            }
+        }
+
+        final var result = new LinkedHashMap<String, GroupVersionEntry>();
+        versions.forEach((key, version) -> result.put(key, new GroupVersionEntry(groups.getOrDefault(key, key), version)));
+        return result;
+    }
+
+    /**
+     * @return the library table keys mapped to their coordinates, with any version reference resolved
+     */
+    Map<String, GVACoordinates> getLibraries() {
+        final var result = new LinkedHashMap<String, GVACoordinates>();
+        libraries.forEach((key, library) -> {
+            final var versionRef = library.get("version.ref");
+            final var version = versionRef == null ? library.get("version") : versions.get(versionRef);
+            result.put(key, new GVACoordinates(library.get("group"), library.get("name"), version));
+        });
+        return result;
+    }
+
+    /**
+     * @return true if a library in the file has the dependency's group, name and version. A catalog entry
+     * doesn't have a classifier, so classifiers aren't compared.
+     */
+    public boolean contains(final Dependency dependency) {
+        return coordinates.contains(new GVACoordinates(dependency.getGroup(), dependency.getName(), dependency.getVersion()));
+    }
+
+    /**
+     * @return the version key the library refers to, or null if its version is written out or it has none
+     */
+    String getVersionRef(final String libraryKey) {
+        return libraries.get(libraryKey).get("version.ref");
+    }
+
+    /**
+     * @return every line outside the {@code [versions]} and {@code [libraries]} tables
+     */
+    List<String> getOtherLines() {
+        return otherLines;
+    }
+
+    /**
+     * @return the fields of a string or inline table value, with any {@code module} split into a group and name,
+     * or null if it has anything other than a group, name, version, or version reference
+     */
+    private static Map<String, String> parseValue(final String value) {
+        final var fields = new HashMap<String, String>();
+
+        final var string = STRING.matcher(value);
+        if (string.matches()) {
+            final var parts = string.group(1).split(":", -1);
+            if (parts.length == 1) {
+                fields.put("version", parts[0]);
+                return fields;
+            }
+            if (parts.length > 3) {
+                return null;
+            }
+            fields.put("group", parts[0]);
+            fields.put("name", parts[1]);
+            if (parts.length == 3) {
+                fields.put("version", parts[2]);
+            }
+            return fields;
+        }
+
+        if (!value.startsWith("{") || !value.endsWith("}")) {
+            return null;
+        }
+
+        for (final var field : value.substring(1, value.length() - 1).split(",")) {
+            final var matcher = FIELD.matcher(field);
+            if (!matcher.matches()) {
+                return null;
+            }
+            fields.put(matcher.group(1), matcher.group(2));
+        }
+
+        final var module = fields.remove("module");
+        if (module != null) {
+            final var parts = module.split(":", -1);
+            if (parts.length != 2) {
+                return null;
+            }
+            fields.put("group", parts[0]);
+            fields.put("name", parts[1]);
+        }
+
+        return List.of("group", "name", "version", "version.ref").containsAll(fields.keySet()) ? fields : null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.jeffalder.tomlconverter;
 
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
 
@@ -10,4 +11,9 @@ public interface FilePreparation {
 
     @OutputFile
     RegularFileProperty getOutputFile();
+
+    /**
+     * @return how the output file is written, so it's installed the same way
+     */
+    Provider<OutputMode> getOutputMode();
 }
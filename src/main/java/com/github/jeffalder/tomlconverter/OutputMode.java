@@ -0,0 +1,27 @@
+package com.github.jeffalder.tomlconverter;
+
+/**
+ * What the {@code rewriteBuildGradle} tasks write for each build file that changed.
+ */
+public enum OutputMode {
+    /**
+     * The whole rewritten file, build/tomlConverter/build.gradle[.kts].new, which is copied over the build file.
+     */
+    FILES(".new"),
+
+    /**
+     * A unified diff of just the statements that changed, build/tomlConverter/build.gradle[.kts].patch,
+     * which is applied to the build file. It's much smaller than the whole file, and easier to review.
+     */
+    PATCH(".patch");
+
+    private final String extension;
+
+    OutputMode(final String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.jeffalder.tomlconverter;
+
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+
+import java.util.List;
+
+/**
+ * The {@code tomlConverter { }} block in the root project's build file.
+ */
+public abstract class TomlConverterExtension {
+    public static final String NAME = "tomlConverter";
+    public static final List<String> DEFAULT_CONFIGURATIONS = List.of("api", "implementation", "runtimeOnly", "testImplementation", "testRuntimeOnly");
+
+    /**
+     * When true, the catalog is merged into the existing {@literal gradle/libs.versions.toml} instead of replacing it.
+     * Libraries and versions already in the file keep their keys, and the file's other tables are kept as they are.
+     * Only build files whose libraries are new, or whose keys changed, are rewritten. Defaults to false.
+     */
+    public abstract Property<Boolean> getIncremental();
+
+    /**
+     * The configurations to extract dependencies from, in every project. Names can have {@code *} and {@code ?} wildcards,
+     * so {@code ['*']} scans every configuration, and {@code ['*Implementation']} picks up custom source sets.
+     * Defaults to {@link #DEFAULT_CONFIGURATIONS}.
+     */
+    public abstract ListProperty<String> getConfigurations();
+
+    /**
+     * The configurations to skip, even if they match {@link #getConfigurations()}. Names can have wildcards here too.
+     * Defaults to none.
+     */
+    public abstract ListProperty<String> getExcludedConfigurations();
+
+    /**
+     * What to write for each build file that changed: the whole file, or a unified diff of the changed statements,
+     * like {@code outputMode = 'patch'}. See {@link OutputMode}. Defaults to {@link OutputMode#FILES}.
+     */
+    public abstract Property<OutputMode> getOutputMode();
+}
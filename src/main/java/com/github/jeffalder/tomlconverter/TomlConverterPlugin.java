@@ -1,20 +1,29 @@
 package com.github.jeffalder.tomlconverter;
 
-import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
-import com.github.jeffalder.tomlconverter.data.Dependency;
-import com.github.jeffalder.tomlconverter.data.LibraryEntry;
+import com.github.jeffalder.tomlconverter.tasks.ApplyConversionTask;
 import com.github.jeffalder.tomlconverter.tasks.BuildGradleRewriterTask;
+import com.github.jeffalder.tomlconverter.tasks.CheckConversionTask;
+import com.github.jeffalder.tomlconverter.tasks.ConversionMetricsService;
+import com.github.jeffalder.tomlconverter.tasks.ConvertedBuildTask;
+import com.github.jeffalder.tomlconverter.tasks.DependencyCollectorService;
 import com.github.jeffalder.tomlconverter.tasks.DependencyExtractionTask;
+import com.github.jeffalder.tomlconverter.tasks.ResolvedDependenciesTask;
+import com.github.jeffalder.tomlconverter.tasks.RewriteEngineService;
+import com.github.jeffalder.tomlconverter.tasks.ScriptRewriterTask;
 import com.github.jeffalder.tomlconverter.tasks.ScriptWriterTask;
 import com.github.jeffalder.tomlconverter.tasks.TomlWriterTask;
+import com.github.jeffalder.tomlconverter.tasks.VerifyConversionTask;
 import org.gradle.api.NonNullApi;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.tasks.GradleBuild;
+import org.gradle.api.tasks.TaskProvider;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @NonNullApi
 public class TomlConverterPlugin implements Plugin<Project> {
@@ -22,36 +31,166 @@ public class TomlConverterPlugin implements Plugin<Project> {
 
     @Override
     public void apply(final Project project) {
-        final var dependencyContainer = new ConcurrentHashMap<Dependency, Boolean>();
-        final Consumer<Dependency> dependencyConsumer = dep -> dependencyContainer.put(dep, true);
-        final var libraryTable = new TomlTable<LibraryEntry>("libraries");
-        final List<BuildGradleReplacer> replacers = new ArrayList<>();
-
-        final var extractionTasks = project.getAllprojects().stream().map(proj ->
-                        proj.getTasks().create("extractDeps", DependencyExtractionTask.class, task ->
-                                task.setDependencyConsumer(dependencyConsumer)))
-                .toArray();
-
-        final var tomlWriterTask = project.getTasks().create("writeToml", TomlWriterTask.class, task ->
-                task.setDependencies(dependencyContainer.keySet())
-                        .setLibraryTable(libraryTable)
-                        .setBuildGradleReplacerConsumer(replacers::add)
-                        .dependsOn(extractionTasks));
+        final var extension = project.getExtensions().create(TomlConverterExtension.NAME, TomlConverterExtension.class);
+        extension.getIncremental().convention(false);
+        extension.getConfigurations().convention(TomlConverterExtension.DEFAULT_CONFIGURATIONS);
+        extension.getExcludedConfigurations().convention(List.of());
+        extension.getOutputMode().convention(OutputMode.FILES);
+
+        final var dependencyCollectorService = project.getGradle().getSharedServices()
+                .registerIfAbsent(DependencyCollectorService.NAME, DependencyCollectorService.class, spec -> { });
+
+        final var metricsService = project.getGradle().getSharedServices()
+                .registerIfAbsent(ConversionMetricsService.NAME, ConversionMetricsService.class, spec ->
+                        spec.getParameters().getReportDirectory().set(project.getLayout().getBuildDirectory().dir(BUILD_SUBDIR)));
+
+        final Map<Project, TaskProvider<DependencyExtractionTask>> extractionTasks = new LinkedHashMap<>();
+        for (final var proj : project.getAllprojects()) {
+            extractionTasks.put(proj, proj.getTasks().register("extractDeps", DependencyExtractionTask.class, task -> {
+                task.getIncludedConfigurations().set(extension.getConfigurations());
+                task.getExcludedConfigurations().set(extension.getExcludedConfigurations());
+                task.getDependencyCollectorService().set(dependencyCollectorService);
+                task.usesService(dependencyCollectorService);
+                task.getMetricsService().set(metricsService);
+                task.usesService(metricsService);
+            }));
+        }
+
+        final var tomlWriterTask = project.getTasks().register("writeToml", TomlWriterTask.class, task -> {
+            for (final var extractionTask : extractionTasks.values()) {
+                task.getDependencyFiles().from(extractionTask.flatMap(DependencyExtractionTask::getOutputFile));
+            }
+            task.getDependencyCollectorService().set(dependencyCollectorService);
+            task.usesService(dependencyCollectorService);
+            task.getMetricsService().set(metricsService);
+            task.usesService(metricsService);
+            task.dependsOn(extractionTasks.values());
+
+            final var existingCatalog = project.getLayout().getProjectDirectory().file("gradle/libs.versions.toml");
+            task.getExistingCatalog().set(extension.getIncremental().map(incremental -> incremental ? existingCatalog : null));
+        });
+
+        final var rewriteEngineService = project.getGradle().getSharedServices()
+                .registerIfAbsent(RewriteEngineService.NAME, RewriteEngineService.class, spec -> { });
 
         final var rewriterTasks = project.getAllprojects().stream().map(proj ->
-                        proj.getTasks().create("rewriteBuildGradle", BuildGradleRewriterTask.class, task ->
-                                task.setBuildGradleReplacers(replacers)
-                                        .dependsOn(tomlWriterTask)))
-                .toArray(BuildGradleRewriterTask[]::new);
+                        proj.getTasks().register("rewriteBuildGradle", BuildGradleRewriterTask.class, task -> {
+                            task.getReplacersFile().set(tomlWriterTask.flatMap(TomlWriterTask::getReplacersFile));
+                            task.getOutputMode().set(extension.getOutputMode());
+                            for (final var usedBy : proj.getAllprojects()) {
+                                task.getDependencyFiles().from(extractionTasks.get(usedBy).flatMap(DependencyExtractionTask::getOutputFile));
+                            }
+                            task.getDependencyCollectorService().set(dependencyCollectorService);
+                            task.usesService(dependencyCollectorService);
+                            task.getRewriteEngineService().set(rewriteEngineService);
+                            task.usesService(rewriteEngineService);
+                            task.getMetricsService().set(metricsService);
+                            task.usesService(metricsService);
+                            task.dependsOn(tomlWriterTask);
+                        }))
+                .collect(Collectors.toUnmodifiableList());
+
+        // apply from: scripts and convention plugins, which any project can use
+        final var scriptRewriterTask = project.getTasks().register("rewriteScripts", ScriptRewriterTask.class, task -> {
+            task.getScripts().from(ScriptRewriterTask.discover(project));
+            task.getReplacersFile().set(tomlWriterTask.flatMap(TomlWriterTask::getReplacersFile));
+            task.getOutputMode().set(extension.getOutputMode());
+            for (final var extractionTask : extractionTasks.values()) {
+                task.getDependencyFiles().from(extractionTask.flatMap(DependencyExtractionTask::getOutputFile));
+            }
+            task.getDependencyCollectorService().set(dependencyCollectorService);
+            task.usesService(dependencyCollectorService);
+            task.getRewriteEngineService().set(rewriteEngineService);
+            task.usesService(rewriteEngineService);
+            task.getMetricsService().set(metricsService);
+            task.usesService(metricsService);
+            task.dependsOn(tomlWriterTask);
+        });
+
+        project.getTasks().register("writeConversionScript", ScriptWriterTask.class, task -> {
+            task.getMetricsService().set(metricsService);
+            task.usesService(metricsService);
+            task.add(tomlWriterTask)
+                    .addScripts(scriptRewriterTask)
+                    .dependsOn(rewriterTasks)
+                    .dependsOn(tomlWriterTask);
+
+            for (final var rewriterTask : rewriterTasks) {
+                task.add(rewriterTask);
+            }
+        });
 
-        project.getTasks().create("writeConversionScript", ScriptWriterTask.class, task -> {
+        project.getTasks().register("applyConversion", ApplyConversionTask.class, task -> {
+            task.getMetricsService().set(metricsService);
+            task.usesService(metricsService);
             task.add(tomlWriterTask)
-                    .dependsOn((Object[]) rewriterTasks)
+                    .addScripts(scriptRewriterTask)
+                    .dependsOn(rewriterTasks)
+                    .dependsOn(tomlWriterTask);
+
+            for (final var rewriterTask : rewriterTasks) {
+                task.add(rewriterTask);
+            }
+        });
+
+        final Map<Project, TaskProvider<ResolvedDependenciesTask>> resolveTasks = new LinkedHashMap<>();
+        for (final var proj : project.getAllprojects()) {
+            resolveTasks.put(proj, proj.getTasks().register(ResolvedDependenciesTask.NAME, ResolvedDependenciesTask.class, task -> {
+                task.getIncludedConfigurations().set(extension.getConfigurations());
+                task.getExcludedConfigurations().set(extension.getExcludedConfigurations());
+            }));
+        }
+
+        final var convertedBuildTask = project.getTasks().register("prepareConvertedBuild", ConvertedBuildTask.class, task -> {
+            task.getCatalog().set(tomlWriterTask.flatMap(TomlWriterTask::getOutputFile));
+            task.dependsOn(rewriterTasks)
                     .dependsOn(tomlWriterTask);
 
             for (final var rewriterTask : rewriterTasks) {
                 task.add(rewriterTask);
             }
         });
+
+        // the nested build runs in this build's directory, with an init script that swaps in the converted files
+        final var convertedResolveTask = project.getTasks().register("resolveConvertedDeps", GradleBuild.class, task -> {
+            task.setDir(project.getProjectDir());
+            task.setBuildName(ConvertedBuildTask.BUILD_NAME);
+            task.setTasks(List.of(ResolvedDependenciesTask.NAME));
+
+            final var startParameter = task.getStartParameter();
+            final var initScripts = new ArrayList<>(startParameter.getInitScripts());
+            initScripts.add(ConvertedBuildTask.initScriptIn(project));
+            startParameter.setInitScripts(initScripts);
+            startParameter.setParallelProjectExecutionEnabled(true);
+            task.dependsOn(convertedBuildTask);
+        });
+
+        project.getTasks().register("verifyConversion", VerifyConversionTask.class, task -> {
+            for (final var resolveTask : resolveTasks.entrySet()) {
+                task.getResolvedFiles().put(resolveTask.getKey().getPath(), resolveTask.getValue()
+                        .flatMap(ResolvedDependenciesTask::getOutputFile)
+                        .map(file -> file.getAsFile().getAbsolutePath()));
+            }
+            task.getMetricsService().set(metricsService);
+            task.usesService(metricsService);
+            task.dependsOn(resolveTasks.values())
+                    .dependsOn(convertedResolveTask);
+        });
+
+        project.getTasks().register("checkTomlConversion", CheckConversionTask.class, task -> {
+            for (final var extractionTask : extractionTasks.entrySet()) {
+                final var proj = extractionTask.getKey();
+                final var dependencyFile = extractionTask.getValue().flatMap(DependencyExtractionTask::getOutputFile);
+                task.getDependencyFiles().put(proj.getPath(), dependencyFile.map(file -> file.getAsFile().getAbsolutePath()));
+                task.getBuildFiles().put(proj.getPath(), proj.getBuildFile().getAbsolutePath());
+                task.getInputFiles().from(dependencyFile, proj.getBuildFile());
+            }
+            task.getCatalog().from(project.getLayout().getProjectDirectory().file("gradle/libs.versions.toml"));
+            task.getDependencyCollectorService().set(dependencyCollectorService);
+            task.usesService(dependencyCollectorService);
+            task.getMetricsService().set(metricsService);
+            task.usesService(metricsService);
+            task.dependsOn(extractionTasks.values());
+        });
     }
 }
@@ -1,13 +1,11 @@
 package com.github.jeffalder.tomlconverter;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 import static java.util.Comparator.comparing;
 
@@ -16,18 +14,22 @@ import static java.util.Comparator.comparing;
  * <ul>
  *     <li>It will accept a preferred ID and translate it into a valid TOML key</li>
  *     <li>It understands the code generation limitations of Gradle and attempts to work around them</li>
- *     <li>It writes the Toml format to a {@link BufferedWriter}</li>
+ *     <li>It writes the Toml format with a {@link TomlWriter}</li>
  * </ul>
  *
  * <p>The code generation limitations of gradle are that one key cannot vary from another solely by a separator and suffix.
  * For example, gradle code generation will not work properly if you have, say, "junit" and "junit-bom" prefixes.
  * In that case, {@code libs.junit} can either refer to a dependency <em>or</em> something that contains "getBom()",
- * but not both. This code works around this by adding a random suffix if it detects a conflict, yielding "junita123" and "junit-bom".
+ * but not both. This code works around this by adding a suffix if it detects a conflict, yielding "junita123" and "junit-bom".
+ * The suffix is derived from a hash of {@link TomlTableRow#getStableId()}, so the same rows get the same keys on every run.
+ *
+ * <p>Rows are kept in a sorted map, so finding a conflicting "junit-..." key is a single ceiling lookup
+ * rather than a scan of every key in the table, and writing them in key order doesn't need a sort.
  * @param <T> A type that implements {@link TomlTableRow} that becomes the row type.
  */
 public class TomlTable<T extends TomlTable.TomlTableRow> implements Iterable<Map.Entry<String, T>> {
     private final String tableName;
-    private final Map<String, T> rows = new HashMap<>();
+    private final NavigableMap<String, T> rows = new TreeMap<>();
 
     public TomlTable(final String tableName) {
         this.tableName = tableName;
@@ -35,10 +37,19 @@ public class TomlTable<T extends TomlTable.TomlTableRow> implements Iterable<Map
 
     public void addAll(final Collection<T> rows) {
         rows.stream()
-                .sorted(comparing(TomlTableRow::getBaseId).reversed())
+                .sorted(comparing(TomlTableRow::getBaseId).thenComparing(TomlTableRow::getStableId).reversed())
                 .forEach(this::add);
     }
 
+    /**
+     * Adds a row under a key that was assigned before, such as one read from an existing file.
+     * The key is used as it is, and rows added later work around it.
+     */
+    public TomlTable<T> put(final String key, final T row) {
+        rows.put(key, row);
+        return this;
+    }
+
     public TomlTable<T> add(final T row) {
         final var initialId = row.getBaseId()
                 .replaceAll("[^a-zA-Z0-9]+", " ") // strip invalid characters
@@ -46,26 +57,70 @@ public class TomlTable<T extends TomlTable.TomlTableRow> implements Iterable<Map
                 .replaceAll(" ([0-9])", "$1")     // remove space before any leading digits
                 .replaceAll(" ", "-");            // swap back to dashes
 
-        final var tomlId = rows.containsKey(initialId) || rows.keySet().stream().anyMatch(id -> id.startsWith(initialId + "-"))
-                // another library is already assigned to this ID, or it has a suffix.
-                // we must modify the final component for (hopefully) unambiguous matches.
-                ? initialId + String.format("%04x", ThreadLocalRandom.current().nextInt(1<<16))
-                : initialId;
-
-        rows.put(tomlId, row);
+        rows.put(allocate(initialId, row.getStableId()), row);
 
         return this;
     }
 
-    public void write(final BufferedWriter writer) throws IOException {
-        writer.write("[" + tableName + "]");
-        writer.newLine();
-        for (final var entry : rows.entrySet().stream().sorted(Map.Entry.comparingByKey()).collect(Collectors.toUnmodifiableList())) {
-            writer.write(entry.getKey() + " = ");
-            entry.getValue().write(writer);
-            writer.newLine();
+    private String allocate(final String initialId, final String stableId) {
+        if (!conflicts(initialId)) {
+            return initialId;
+        }
+
+        // another library is already assigned to this ID, or it has a suffix.
+        // we must modify the final component for (hopefully) unambiguous matches.
+        // if an existing key is a prefix of this one, that component gets the suffix instead, since existing keys don't change.
+        final var prefix = prefixKey(initialId);
+        return prefix == null
+                ? suffixedId(initialId, "", stableId)
+                : suffixedId(prefix, initialId.substring(prefix.length()), stableId);
+    }
+
+    private String suffixedId(final String initialId, final String rest, final String stableId) {
+        final var hash = stableId.hashCode();
+        final var start = (hash ^ (hash >>> 16)) & 0xffff;
+
+        // probe forward from the hashed suffix until we find one nothing else is using
+        for (var i = 0; i < 1 << 16; i++) {
+            final var candidate = initialId + String.format("%04x", (start + i) & 0xffff) + rest;
+            if (!conflicts(candidate)) {
+                return candidate;
+            }
+        }
+
+        throw new IllegalStateException("No suffixes left for " + initialId);
+    }
+
+    private boolean conflicts(final String id) {
+        return rows.containsKey(id) || hasSuffixedKey(id) || prefixKey(id) != null;
+    }
+
+    private boolean hasSuffixedKey(final String id) {
+        final var prefix = id + "-";
+        final var next = rows.ceilingKey(prefix);
+        return next != null && next.startsWith(prefix);
+    }
+
+    /**
+     * @return the shortest key in the table that the ID extends with a dash, or null if there isn't one
+     */
+    private String prefixKey(final String id) {
+        for (var dash = id.indexOf('-'); dash >= 0; dash = id.indexOf('-', dash + 1)) {
+            final var prefix = id.substring(0, dash);
+            if (rows.containsKey(prefix)) {
+                return prefix;
+            }
         }
-        writer.newLine();
+        return null;
+    }
+
+    public void write(final TomlWriter writer) throws IOException {
+        writer.table(tableName);
+        for (final var entry : rows.entrySet()) {
+            entry.getValue().write(writer.key(entry.getKey()));
+            writer.endLine();
+        }
+        writer.endLine();
     }
 
     @Override
@@ -76,6 +131,14 @@ public class TomlTable<T extends TomlTable.TomlTableRow> implements Iterable<Map
     public interface TomlTableRow {
         String getBaseId();
 
-        void write(BufferedWriter writer) throws IOException;
+        /**
+         * @return a value that identifies this row in every run, used to derive a suffix when the base ID conflicts
+         */
+        String getStableId();
+
+        /**
+         * Writes the value for the row's key, without ending the line.
+         */
+        void write(TomlWriter writer);
     }
 }
@@ -0,0 +1,88 @@
+package com.github.jeffalder.tomlconverter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>This class writes TOML a line at a time. Each line is appended into one buffer that's reused for every line,
+ * and handed to the {@link Writer} in a single call, so writing a row doesn't parse a format string or box anything.
+ *
+ * <p>Strings are written as TOML basic strings, with quotes, backslashes and control characters escaped.
+ * Keys are written as they are, since {@link TomlTable} only makes bare keys.
+ */
+public class TomlWriter {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(128);
+
+    public TomlWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    public TomlWriter table(final String name) throws IOException {
+        line.append('[').append(name).append(']');
+        return endLine();
+    }
+
+    /**
+     * Starts a {@code key = } pair, at the start of a line or inside an inline table.
+     */
+    public TomlWriter key(final String key) {
+        line.append(key).append(" = ");
+        return this;
+    }
+
+    public TomlWriter string(final String value) {
+        line.append('"');
+        for (var i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\b':
+                    line.append("\\b");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\f':
+                    line.append("\\f");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x7f) {
+                        line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+        return this;
+    }
+
+    /**
+     * Appends text that's already valid TOML, like the punctuation of an inline table.
+     */
+    public TomlWriter raw(final String text) {
+        line.append(text);
+        return this;
+    }
+
+    public TomlWriter endLine() throws IOException {
+        line.append(System.lineSeparator());
+        writer.append(line);
+        line.setLength(0);
+        return this;
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>This class finds the script plugins a build script applies, with {@code apply from: 'gradle/other.gradle'},
+ * or in Kotlin, {@code apply(from = "gradle/other.gradle.kts")}, so they can be rewritten along with the build files.
+ *
+ * <p>The script can be named by a string, or by {@code file('...')}, {@code project.file('...')} or
+ * {@code rootProject.file('...')}. A string can start with {@code $rootDir}, {@code ${rootProject.projectDir}}
+ * or {@code $projectDir}, but anything else interpolated into it can only be known by running the build, so it's skipped,
+ * as are remote scripts. Relative paths are resolved against the project directory, as Gradle does.
+ */
+public final class AppliedScripts {
+    private static final List<String> ROOT_PREFIXES = List.of(
+            "$rootDir/", "${rootDir}/", "$rootProject.projectDir/", "${rootProject.projectDir}/");
+    private static final List<String> PROJECT_PREFIXES = List.of("$projectDir/", "${projectDir}/");
+
+    private AppliedScripts() {
+    }
+
+    /**
+     * @param script the text of a build script or script plugin
+     * @param projectDir the directory of the project the script is applied to
+     * @return the local files the script applies, which may not exist
+     */
+    public static List<Path> find(final CharSequence script, final Path projectDir, final Path rootDir) {
+        final var lexer = new BuildScriptLexer().append(script);
+        final var tokens = lexer.getTokens();
+        final var result = new ArrayList<Path>();
+
+        for (var i = 0; i < tokens.size(); i++) {
+            if (!isWord(lexer, i, "apply")) {
+                continue;
+            }
+            var from = i + 1;
+            if (from < tokens.size() && lexer.isSymbol(tokens.get(from), '(')) {
+                from++;
+            }
+            if (isWord(lexer, from, "from") && from + 1 < tokens.size()
+                    && (lexer.isSymbol(tokens.get(from + 1), ':') || lexer.isSymbol(tokens.get(from + 1), '='))) {
+                final var applied = value(lexer, from + 2, projectDir, rootDir);
+                if (applied != null) {
+                    result.add(applied);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the file named by the tokens starting at {@code index}, or null if they don't name a local file
+     */
+    private static Path value(final BuildScriptLexer lexer, final int index, final Path projectDir, final Path rootDir) {
+        final var tokens = lexer.getTokens();
+        var i = index;
+        var base = projectDir;
+        if (isWord(lexer, i, "rootProject") || isWord(lexer, i, "project")) {
+            if (i + 1 >= tokens.size() || !lexer.isSymbol(tokens.get(i + 1), '.')) {
+                return null;
+            }
+            base = isWord(lexer, i, "rootProject") ? rootDir : projectDir;
+            i += 2;
+            if (!isWord(lexer, i, "file")) {
+                return null;
+            }
+        }
+        if (isWord(lexer, i, "file")) {
+            if (i + 1 >= tokens.size() || !lexer.isSymbol(tokens.get(i + 1), '(')) {
+                return null;
+            }
+            i += 2;
+        }
+        if (i >= tokens.size() || tokens.get(i).getKind() != BuildScriptLexer.Kind.STRING) {
+            return null;
+        }
+
+        final var string = tokens.get(i);
+        var path = lexer.content(string);
+        if (path.contains("://")) {
+            return null;
+        }
+        if (string.isInterpolated()) {
+            final var rootPrefix = prefix(path, ROOT_PREFIXES);
+            final var prefix = rootPrefix != null ? rootPrefix : prefix(path, PROJECT_PREFIXES);
+            if (prefix == null || path.indexOf('$', prefix.length()) >= 0) {
+                return null;
+            }
+            base = rootPrefix != null ? rootDir : projectDir;
+            path = path.substring(prefix.length());
+        }
+
+        try {
+            return base.resolve(path).normalize();
+        } catch (final InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static String prefix(final String path, final List<String> prefixes) {
+        for (final var prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWord(final BuildScriptLexer lexer, final int index, final String word) {
+        final var tokens = lexer.getTokens();
+        return index < tokens.size()
+                && tokens.get(index).getKind() == BuildScriptLexer.Kind.WORD
+                && lexer.text(tokens.get(index)).equals(word);
+    }
+}
@@ -1,45 +1,146 @@
 package com.github.jeffalder.tomlconverter.data;
 
-import java.util.regex.Pattern;
+import java.io.Serializable;
+import java.util.Objects;
 
 /**
- * This class contains the messy {@link Pattern} used to find and replace the original
- * string for the Group-Version-Artifact-Classifier (GVAC) coordinates in build.gradle[.kts]
- * and replace it with the Toml syntax. 
+ * This class knows the Group-Version-Artifact-Classifier (GVAC) coordinates of one library entry,
+ * whether a declaration found by the {@link RewriteEngine} in build.gradle[.kts] refers to it,
+ * and the Toml syntax that replaces the declaration.
  */
-public class BuildGradleReplacer {
-    private final Pattern pattern;
+public class BuildGradleReplacer implements Serializable {
+    private static final long serialVersionUID = 3L;
+
+    private final String tomlId;
     private final String replacement;
+    private final String literal;
+    private final boolean versioned;
+    private final String classifier;
+    private final String usageKey;
 
     public BuildGradleReplacer(final String tomlId, final LibraryEntry libraryEntry, final String classifier) {
-        final var versionMatcher = libraryEntry.getVersion() == null ? "" : ""
-                + ":"            // match the delimiting colon for the version
-                + "(?:[^\"'$:]+" // match everything except the terminal quote (used for fixed versions)
-                + "|"            // OR
-                + "\\$\\{.*\\})";// match the Groovy interpolation format (used for properties)
-
-        final var classifierMatcher = classifier == null ? "" : (":" + classifier);
-
-        this.pattern = Pattern.compile(String.format("("
-                + " ?\\(?"       // grab the possible starting space and/or paren
-                + "[\"']"        // start with a quote
-                + "%s:%s"        // group and name, maybe followed by a colon
-                + versionMatcher
-                + classifierMatcher
-                + "[\"']"        // end with a quote
-                + "\\)?"         // grab the possible ending paren
-                + ")", Pattern.quote(libraryEntry.getGroup()), Pattern.quote(libraryEntry.getName())));
-
-        final var innerReplacement = "(libs." + tomlId.replaceAll("-", ".") + ")";
+        this.tomlId = tomlId;
+        this.literal = libraryEntry.getGroup() + ":" + libraryEntry.getName();
+        this.versioned = libraryEntry.getVersion() != null;
+        this.classifier = classifier;
+        this.usageKey = Dependency.usageKey(libraryEntry.getGroup(), libraryEntry.getName(), classifier);
+        this.replacement = replacement("(libs." + tomlId.replaceAll("-", ".") + ")", classifier);
+    }
+
+    private BuildGradleReplacer(final BuildGradleReplacer other, final String replacement) {
+        this.tomlId = other.tomlId;
+        this.literal = other.literal;
+        this.versioned = other.versioned;
+        this.classifier = other.classifier;
+        this.usageKey = other.usageKey;
+        this.replacement = replacement;
+    }
 
+    /**
+     * @return a replacer that looks the library up in the catalog by its key, for Kotlin scripts that don't get
+     * the type-safe {@code libs} accessor, like precompiled script plugins and scripts applied with {@code apply(from = ...)}
+     */
+    public BuildGradleReplacer withCatalogLookup() {
+        return new BuildGradleReplacer(this, replacement(
+                "(the<VersionCatalogsExtension>().named(\"libs\").findLibrary(\"" + tomlId + "\").get())", classifier));
+    }
+
+    private static String replacement(final String library, final String classifier) {
         if (classifier == null) {
-            replacement = innerReplacement;
-        } else {
-            replacement = innerReplacement + " { artifact { classifier = '" + classifier + "' } }";
+            return library;
         }
+        // double quotes, so the replacement works in Kotlin scripts as well as Groovy ones
+        return library + " { artifact { classifier = \"" + classifier + "\" } }";
+    }
+
+    /**
+     * @return the key that matches {@link Dependency#getUsageKey()} for the dependencies this replaces
+     */
+    public String getUsageKey() {
+        return usageKey;
+    }
+
+    /**
+     * @return the {@code group:name} this replaces, plus {@code :classifier} if it has one
+     */
+    public String getLibrary() {
+        return classifier == null ? literal : literal + ":" + classifier;
+    }
+
+    String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * @return the text that replaces a match, which is unique to each replacer
+     */
+    public String getReplacement() {
+        return replacement;
     }
 
-    public String replace(final String input) {
-        return pattern.matcher(input).replaceFirst(replacement);
+    /**
+     * Checks string notation, like {@code 'group:name:version:classifier'}.
+     * The version can be written out, or be a single {@code $property} or {@code ${...}} interpolation.
+     * @param coordinates the contents of a string literal that starts with {@link #getLiteral()}
+     */
+    boolean matchesCoordinates(final String coordinates) {
+        var index = literal.length();
+        if (versioned) {
+            if (index >= coordinates.length() || coordinates.charAt(index) != ':') {
+                return false;
+            }
+            index = versionEnd(coordinates, index + 1);
+            if (index < 0) {
+                return false;
+            }
+        }
+
+        if (classifier == null) {
+            return index == coordinates.length();
+        }
+        return coordinates.length() == index + 1 + classifier.length()
+                && coordinates.charAt(index) == ':'
+                && coordinates.startsWith(classifier, index + 1);
+    }
+
+    /**
+     * Checks map notation, like {@code group: 'group', name: 'name', version: 'version'}, for this replacer's group and name.
+     * @param version the version, or null if there isn't one
+     * @param classifier the classifier, or null if there isn't one
+     */
+    boolean matchesMap(final String version, final String classifier) {
+        return versioned == (version != null) && Objects.equals(this.classifier, classifier);
+    }
+
+    /**
+     * @return the index just past the version that starts at {@code from}, or -1 if there isn't one
+     */
+    private static int versionEnd(final String coordinates, final int from) {
+        if (coordinates.startsWith("${", from)) {
+            var depth = 0;
+            for (var i = from + 1; i < coordinates.length(); i++) {
+                final var c = coordinates.charAt(i);
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}' && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        if (coordinates.startsWith("$", from)) {
+            var end = from + 1;
+            while (end < coordinates.length() && Character.isJavaIdentifierPart(coordinates.charAt(end))) {
+                end++;
+            }
+            return end > from + 1 ? end : -1;
+        }
+
+        var end = from;
+        while (end < coordinates.length() && "\"'$:".indexOf(coordinates.charAt(end)) < 0) {
+            end++;
+        }
+        return end > from ? end : -1;
     }
 }
@@ -0,0 +1,329 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * <p>A lexer for build.gradle and build.gradle.kts files, just thorough enough to find dependency declarations.
+ * It tells strings, comments, words and symbols apart in one pass over the text, without backtracking.
+ *
+ * <p>Text is appended a line at a time, and the lexer keeps its place inside strings, comments and {@code ${...}}
+ * interpolations from one line to the next. Only tokens outside of strings are kept: a string, with everything
+ * interpolated into it, is a single token, and comments and whitespace aren't tokens at all. Groovy's slashy strings
+ * are strings too, so the brackets in a regex like {@code ~/\(/} aren't counted; like other single-quoted strings,
+ * one that isn't closed on its line ends there.
+ *
+ * <p>{@link #atStatementEnd()} tells whether the text so far could be followed by a new statement,
+ * so a file can be rewritten one statement at a time, and {@link #mayDeclare()} tells whether it's worth
+ * looking at the tokens of that statement at all.
+ */
+final class BuildScriptLexer {
+    enum Kind { STRING, WORD, SYMBOL }
+
+    private final StringBuilder text = new StringBuilder();
+    private final List<Token> tokens = new ArrayList<>();
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private int position;
+    private int brackets;
+    private boolean mayDeclare;
+
+    BuildScriptLexer append(final CharSequence chars) {
+        text.append(chars);
+        scan();
+        return this;
+    }
+
+    BuildScriptLexer appendLine(final String line) {
+        text.append(line).append('\n');
+        scan();
+        return this;
+    }
+
+    /**
+     * @return true if the text isn't inside a string, comment, or parentheses, and doesn't end with a comma,
+     * colon or equals sign that the next line would continue
+     */
+    boolean atStatementEnd() {
+        if (!frames.isEmpty() || brackets > 0) {
+            return false;
+        }
+        if (tokens.isEmpty()) {
+            return true;
+        }
+        final var last = tokens.get(tokens.size() - 1);
+        return last.kind != Kind.SYMBOL || ",:=".indexOf(text.charAt(last.start)) < 0;
+    }
+
+    void reset() {
+        text.setLength(0);
+        tokens.clear();
+        frames.clear();
+        position = 0;
+        brackets = 0;
+        mayDeclare = false;
+    }
+
+    /**
+     * @return false if no string in the text has a colon in it and there is no colon or equals sign between tokens,
+     * so the text can't have a dependency declaration in either string or map notation
+     */
+    boolean mayDeclare() {
+        return mayDeclare;
+    }
+
+    StringBuilder getText() {
+        return text;
+    }
+
+    List<Token> getTokens() {
+        return tokens;
+    }
+
+    String text(final Token token) {
+        return text.substring(token.start, token.end);
+    }
+
+    /**
+     * @return the characters between the quotes of a string token, with escapes left as they are
+     */
+    String content(final Token string) {
+        return content(string, -1);
+    }
+
+    /**
+     * @param end where to stop, or -1 for the closing quote
+     * @return the characters between the opening quote of a string token and {@code end}
+     */
+    String content(final Token string, final int end) {
+        return text.substring(string.start + string.quoteLength, end < 0 ? string.end - string.quoteLength : end);
+    }
+
+    /**
+     * @return the index in the text of the first {@code c} between the quotes of a string token,
+     * starting from {@code from}, or -1 if there isn't one
+     */
+    int indexOf(final char c, final Token string, final int from) {
+        final var end = string.end - string.quoteLength;
+        for (var i = Math.max(from, string.start + string.quoteLength); i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    boolean isSymbol(final Token token, final char symbol) {
+        return token.kind == Kind.SYMBOL && text.charAt(token.start) == symbol;
+    }
+
+    private void scan() {
+        while (position < text.length()) {
+            final var frame = frames.peek();
+            if (frame == null || frame.kind == FrameKind.INTERPOLATION) {
+                scanCode(frame);
+            } else if (frame.kind == FrameKind.STRING) {
+                scanString(frame);
+            } else {
+                scanComment(frame);
+            }
+        }
+    }
+
+    /**
+     * @param interpolation the {@code ${...}} being scanned, or null at the top level
+     */
+    private void scanCode(final Frame interpolation) {
+        final var c = text.charAt(position);
+        if (Character.isWhitespace(c)) {
+            position++;
+            return;
+        }
+
+        if (c == '/' && position + 1 < text.length() && (text.charAt(position + 1) == '/' || text.charAt(position + 1) == '*')) {
+            final var comment = new Frame(text.charAt(position + 1) == '*' ? FrameKind.BLOCK_COMMENT : FrameKind.LINE_COMMENT);
+            position += 2;
+            comment.start = position;
+            frames.push(comment);
+            return;
+        }
+
+        if (c == '"' || c == '\'' || (c == '/' && interpolation == null && expectsValue())) {
+            final var string = new Frame(FrameKind.STRING);
+            string.quote = c;
+            string.quoteLength = c != '/' && startsWith(c, 3) ? 3 : 1;
+            string.start = position;
+            frames.push(string);
+            position += string.quoteLength;
+            return;
+        }
+
+        final var start = position;
+        if (Character.isJavaIdentifierPart(c)) {
+            while (position < text.length() && Character.isJavaIdentifierPart(text.charAt(position))) {
+                position++;
+            }
+            if (interpolation == null) {
+                tokens.add(new Token(Kind.WORD, start, position, 0, false));
+            }
+            return;
+        }
+
+        position++;
+        if (interpolation != null) {
+            if (c == '{') {
+                interpolation.braces++;
+            } else if (c == '}' && interpolation.braces-- == 0) {
+                frames.pop();
+            }
+            return;
+        }
+
+        if (c == '(' || c == '[') {
+            brackets++;
+        } else if ((c == ')' || c == ']') && brackets > 0) {
+            brackets--;
+        } else if (c == ':' || c == '=') {
+            mayDeclare = true;
+        }
+        tokens.add(new Token(Kind.SYMBOL, start, position, 0, false));
+    }
+
+    /**
+     * @return true if a {@code /} here would start a Groovy slashy string, like the regex in {@code name ==~ /\(/},
+     * rather than divide: it's at the start of the statement, or after a symbol other than a closing bracket or brace
+     */
+    private boolean expectsValue() {
+        if (tokens.isEmpty()) {
+            return true;
+        }
+        final var last = tokens.get(tokens.size() - 1);
+        return last.kind == Kind.SYMBOL && ")]}".indexOf(text.charAt(last.start)) < 0;
+    }
+
+    private void scanString(final Frame string) {
+        final var c = text.charAt(position);
+        if (c == '\\') {
+            position = Math.min(position + 2, text.length());
+            return;
+        }
+
+        if (c == string.quote && startsWith(c, string.quoteLength)) {
+            position += string.quoteLength;
+            frames.pop();
+            if (frames.isEmpty()) {
+                tokens.add(new Token(Kind.STRING, string.start, position, string.quoteLength, string.interpolated));
+            }
+            return;
+        }
+
+        if (c == '\n' && string.quoteLength == 1) {
+            // an unterminated string; don't let it swallow the rest of the file
+            frames.pop();
+            return;
+        }
+
+        position++;
+        if (c == ':' && frames.size() == 1) {
+            mayDeclare = true;
+        }
+        if (c == '$' && string.quote == '"' && position < text.length()) {
+            final var next = text.charAt(position);
+            if (next == '{' || Character.isJavaIdentifierStart(next)) {
+                frames.getLast().interpolated = true;
+            }
+            if (next == '{') {
+                frames.push(new Frame(FrameKind.INTERPOLATION));
+                position++;
+            }
+        }
+    }
+
+    private void scanComment(final Frame comment) {
+        if (comment.kind == FrameKind.LINE_COMMENT) {
+            final var end = text.indexOf("\n", position);
+            if (end < 0) {
+                position = text.length();
+            } else {
+                frames.pop();
+                position = end;
+            }
+            return;
+        }
+
+        // start a character back, in case the last append ended with the * of a */
+        final var end = text.indexOf("*/", Math.max(position - 1, comment.start));
+        if (end < 0) {
+            position = text.length();
+        } else {
+            frames.pop();
+            position = end + 2;
+        }
+    }
+
+    private boolean startsWith(final char c, final int count) {
+        if (position + count > text.length()) {
+            return false;
+        }
+        for (var i = position; i < position + count; i++) {
+            if (text.charAt(i) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static final class Token {
+        private final Kind kind;
+        private final int start;
+        private final int end;
+        private final int quoteLength;
+        private final boolean interpolated;
+
+        private Token(final Kind kind, final int start, final int end, final int quoteLength, final boolean interpolated) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.quoteLength = quoteLength;
+            this.interpolated = interpolated;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        int getStart() {
+            return start;
+        }
+
+        int getEnd() {
+            return end;
+        }
+
+        /**
+         * @return true for a double-quoted string with a {@code $} interpolation in it
+         */
+        boolean isInterpolated() {
+            return interpolated;
+        }
+    }
+
+    private enum FrameKind { STRING, INTERPOLATION, LINE_COMMENT, BLOCK_COMMENT }
+
+    /**
+     * Something the lexer is inside of. Strings and interpolations can nest, as in {@code "${a ? "b" : 'c'}"}.
+     */
+    private static final class Frame {
+        private final FrameKind kind;
+        private char quote;
+        private int quoteLength;
+        private int start;
+        private boolean interpolated;
+        private int braces;
+
+        private Frame(final FrameKind kind) {
+            this.kind = kind;
+        }
+    }
+}
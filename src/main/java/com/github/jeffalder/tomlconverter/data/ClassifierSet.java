@@ -0,0 +1,76 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Objects;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+
+/**
+ * <p>The classifiers used with one library. That's almost always none, or just {@code null} for the main artifact,
+ * so they're kept in a small sorted array rather than a {@link java.util.HashSet}, which costs a map, a table, and
+ * a node for each one. An empty set doesn't allocate anything.
+ *
+ * <p>The order is stable: no classifier first, then the rest alphabetically. Classifiers are only ever added,
+ * so removing one, through the set or its iterator, throws {@link UnsupportedOperationException}.
+ * Classes that hand the set out wrap it with {@link java.util.Collections#unmodifiableSet}.
+ */
+final class ClassifierSet extends AbstractSet<String> {
+    private static final String[] EMPTY = new String[0];
+    private static final Comparator<String> ORDER = nullsFirst(naturalOrder());
+
+    private String[] classifiers = EMPTY;
+
+    ClassifierSet() {
+    }
+
+    ClassifierSet(final Collection<String> classifiers) {
+        addAll(classifiers);
+    }
+
+    @Override
+    public boolean add(final String classifier) {
+        var index = 0;
+        while (index < classifiers.length) {
+            final var order = ORDER.compare(classifiers[index], classifier);
+            if (order == 0) {
+                return false;
+            }
+            if (order > 0) {
+                break;
+            }
+            index++;
+        }
+
+        final var grown = new String[classifiers.length + 1];
+        System.arraycopy(classifiers, 0, grown, 0, index);
+        grown[index] = classifier;
+        System.arraycopy(classifiers, index, grown, index + 1, classifiers.length - index);
+        classifiers = grown;
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        for (final var classifier : classifiers) {
+            if (Objects.equals(classifier, o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return Arrays.asList(classifiers).iterator();
+    }
+
+    @Override
+    public int size() {
+        return classifiers.length;
+    }
+}
@@ -4,25 +4,52 @@ import org.gradle.api.artifacts.DependencyArtifact;
 import org.gradle.api.artifacts.DependencyConstraint;
 import org.gradle.api.artifacts.ExternalModuleDependency;
 
+import java.io.Serializable;
+import java.util.Comparator;
 import java.util.Objects;
 
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+
 /**
  * This class represents a unique set of Group-Version-Artifact-Classifier (GVAC)
  * coordinates used somewhere in all the projects.
+ *
+ * <p>The same coordinates are declared over and over in a big build, so the strings are interned: every dependency
+ * on a library shares one copy of its group, name, version, and classifier. The JVM's string table holds them weakly,
+ * so they don't pile up in a long-lived daemon. The hash code is computed once, since dependencies are
+ * collected into sets from every project.
  */
-public class Dependency {
+public class Dependency implements Serializable, Comparable<Dependency> {
+    private static final long serialVersionUID = 1L;
+
+    private static final Comparator<Dependency> ORDER = comparing(Dependency::getGroup)
+            .thenComparing(Dependency::getName)
+            .thenComparing(Dependency::getVersion, nullsFirst(naturalOrder()))
+            .thenComparing(Dependency::getClassifier, nullsFirst(naturalOrder()));
+
     private final String group;
     private final String name;
     private final String version;
     private final String classifier;
+    private final transient int hash;
 
     private Dependency(final String group, final String name, final String version, final String classifier) {
         Objects.requireNonNull(group);
         Objects.requireNonNull(name);
-        this.group = group;
-        this.name = name;
-        this.version = version;
-        this.classifier = classifier;
+        this.group = group.intern();
+        this.name = name.intern();
+        this.version = version == null ? null : version.intern();
+        this.classifier = classifier == null ? null : classifier.intern();
+        this.hash = 31 * (31 * (31 * group.hashCode() + name.hashCode()) + Objects.hashCode(version)) + Objects.hashCode(classifier);
+    }
+
+    /**
+     * Deserialized dependencies go through the constructor too, so they're interned and have their hash code.
+     */
+    private Object readResolve() {
+        return new Dependency(group, name, version, classifier);
     }
 
     public static Dependency from(final ExternalModuleDependency externalModuleDependency) {
@@ -34,6 +61,10 @@ public class Dependency {
         return new Dependency(constraint.getGroup(), constraint.getName(), constraint.getVersion(), null);
     }
 
+    public static Dependency of(final String group, final String name, final String version, final String classifier) {
+        return new Dependency(group, name, version, classifier);
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -43,13 +74,18 @@ public class Dependency {
             return false;
         }
         final Dependency that = (Dependency) o;
-        return group.equals(that.group) && name.equals(that.name) && Objects.equals(version, that.version) && Objects.equals(classifier,
+        return hash == that.hash && group.equals(that.group) && name.equals(that.name) && Objects.equals(version, that.version) && Objects.equals(classifier,
                 that.classifier);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(group, name, version, classifier);
+        return hash;
+    }
+
+    @Override
+    public int compareTo(final Dependency other) {
+        return ORDER.compare(this, other);
     }
 
     @Override
@@ -62,6 +98,17 @@ public class Dependency {
                 '}';
     }
 
+    /**
+     * @return the group, name, and classifier; the parts of the coordinates a {@link BuildGradleReplacer} looks for
+     */
+    public String getUsageKey() {
+        return usageKey(group, name, classifier);
+    }
+
+    static String usageKey(final String group, final String name, final String classifier) {
+        return group + ":" + name + ":" + classifier;
+    }
+
     public String getClassifier() {
         return classifier;
     }
@@ -1,7 +1,7 @@
 package com.github.jeffalder.tomlconverter.data;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
 
@@ -10,12 +10,15 @@ import java.util.Set;
  * specified in the Toml file (aka GVA, Group-Version-Artifact). Gradle Toml doesn't contain
  * classifiers, so this class is used to uniquely identify libraries in the Toml file
  * and accumulate all the various classifiers that are used for those GVA coordinates.
+ *
+ * <p>Coordinates are used as map keys for every dependency in the build, so the hash code is computed once.
  */
 public class GVACoordinates {
     private final String group;
     private final String name;
     private final String version;
-    private final Set<String> classifiers = new HashSet<>();
+    private final int hash;
+    private final Set<String> classifiers = new ClassifierSet();
 
     public GVACoordinates(final String group, final String name, final String version) {
         Objects.requireNonNull(group);
@@ -24,6 +27,7 @@ public class GVACoordinates {
         this.group = group;
         this.name = name;
         this.version = version;
+        this.hash = 31 * (31 * group.hashCode() + name.hashCode()) + Objects.hashCode(version);
     }
 
     public GVACoordinates addClassifiers(final Collection<String> collection) {
@@ -31,6 +35,11 @@ public class GVACoordinates {
         return this;
     }
 
+    public GVACoordinates addClassifier(final String classifier) {
+        classifiers.add(classifier);
+        return this;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -40,12 +49,12 @@ public class GVACoordinates {
             return false;
         }
         final GVACoordinates that = (GVACoordinates) o;
-        return group.equals(that.group) && name.equals(that.name) && Objects.equals(version, that.version);
+        return hash == that.hash && group.equals(that.group) && name.equals(that.name) && Objects.equals(version, that.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(group, name, version);
+        return hash;
     }
 
     public String getVersion() {
@@ -61,6 +70,6 @@ public class GVACoordinates {
     }
 
     public Set<String> getClassifiers() {
-        return classifiers;
+        return Collections.unmodifiableSet(classifiers);
     }
 }
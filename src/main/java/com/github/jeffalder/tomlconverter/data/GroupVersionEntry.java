@@ -1,9 +1,7 @@
 package com.github.jeffalder.tomlconverter.data;
 
 import com.github.jeffalder.tomlconverter.TomlTable;
-
-import java.io.BufferedWriter;
-import java.io.IOException;
+import com.github.jeffalder.tomlconverter.TomlWriter;
 
 public class GroupVersionEntry implements TomlTable.TomlTableRow {
     private final String group;
@@ -24,7 +22,12 @@ public class GroupVersionEntry implements TomlTable.TomlTableRow {
     }
 
     @Override
-    public void write(final BufferedWriter writer) throws IOException {
-        writer.write(String.format("\"%s\"", version));
+    public String getStableId() {
+        return group + ":" + version;
+    }
+
+    @Override
+    public void write(final TomlWriter writer) {
+        writer.string(version);
     }
 }
@@ -1,10 +1,9 @@
 package com.github.jeffalder.tomlconverter.data;
 
 import com.github.jeffalder.tomlconverter.TomlTable;
+import com.github.jeffalder.tomlconverter.TomlWriter;
 
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
 
 public class LibraryEntry implements TomlTable.TomlTableRow {
@@ -29,7 +28,7 @@ public class LibraryEntry implements TomlTable.TomlTableRow {
             this.version = dependency.getVersion();
         }
 
-        this.classifiers = new HashSet<>(dependency.getClassifiers());
+        this.classifiers = Collections.unmodifiableSet(new ClassifierSet(dependency.getClassifiers()));
     }
 
     public String getGroup() {
@@ -49,16 +48,21 @@ public class LibraryEntry implements TomlTable.TomlTableRow {
         return getName();
     }
 
+    @Override
+    public String getStableId() {
+        return group + ":" + name + ":" + version;
+    }
+
     public Set<String> getClassifiers() {
         return classifiers;
     }
 
     @Override
-    public void write(final BufferedWriter writer) throws IOException {
-        writer.write(String.format("{ module = \"%s:%s\"", group, name));
+    public void write(final TomlWriter writer) {
+        writer.raw("{ ").key("module").string(group + ":" + name);
         if (versionKey != null) {
-            writer.write(String.format(", %s = \"%s\"", versionKey, version));
+            writer.raw(", ").key(versionKey).string(version);
         }
-        writer.write(" }");
+        writer.raw(" }");
     }
 }
@@ -0,0 +1,416 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * <p>This class applies a whole list of {@link BuildGradleReplacer}s to a build.gradle[.kts] file in a single pass.
+ *
+ * <p>The file is split into tokens by a {@link BuildScriptLexer}, and two kinds of declaration are replaced:
+ * <ul>
+ *     <li>string notation: {@code implementation 'group:name:version'}, {@code implementation("group:name:$version")}</li>
+ *     <li>map notation: {@code implementation group: 'group', name: 'name', version: '1.0'}, or in Kotlin,
+ *     {@code implementation(group = "group", name = "name", version = "1.0")}</li>
+ * </ul>
+ * Either one can be spread over several lines. Strings in comments aren't replaced. The group and name of each declaration
+ * are looked up in a hash map, so the cost is linear in the size of the file no matter how many libraries there are
+ * or what the file contains. Replacers for the same library, like its classifiers, share one entry in the map.
+ *
+ * <p>Most statements aren't dependency declarations, and are rejected before their tokens are looked at:
+ * a statement with no colon in a string, and no colon or equals sign outside of one, can't have a declaration in it.
+ * A string is only copied out of the file once the part before its second colon is known to be a library's group and name.
+ *
+ * <p>When more than one replacer matches the same declaration, the earlier replacer in the list wins.
+ *
+ * <p>An engine counts, for each replacer, how often it was tried and how often it matched. It isn't thread-safe;
+ * use one engine per file.
+ */
+public class RewriteEngine {
+    private final BuildGradleReplacer[] replacers;
+    private final Map<String, int[]> byLiteral = new HashMap<>();
+    private final int[] attemptCounts;
+    private final int[] hitCounts;
+    private int lines;
+    private int rejectedLines;
+    private boolean found;
+    private boolean lineBreakAtEnd;
+    private final StringBuilder lineBuffer = new StringBuilder();
+
+    public RewriteEngine(final List<BuildGradleReplacer> replacers) {
+        this.replacers = replacers.toArray(new BuildGradleReplacer[0]);
+        this.attemptCounts = new int[this.replacers.length];
+        this.hitCounts = new int[this.replacers.length];
+
+        for (var i = 0; i < this.replacers.length; i++) {
+            byLiteral.merge(this.replacers[i].getLiteral(), new int[]{i}, RewriteEngine::append);
+        }
+    }
+
+    /**
+     * @param text one or more whole statements from a build.gradle[.kts] file
+     * @return the rewritten text, or the same instance if nothing matched
+     */
+    public String rewrite(final String text) {
+        final var lexer = new BuildScriptLexer().append(text);
+        final var edits = edits(lexer);
+        return edits.isEmpty() ? text : apply(lexer.getText(), edits).toString();
+    }
+
+    /**
+     * Rewrites a file a statement at a time, so memory use depends on the longest statement rather than the size of the file.
+     * @return true if anything was replaced
+     */
+    public boolean rewrite(final BufferedReader reader, final BufferedWriter writer) throws IOException {
+        return rewrite(reader, (text, edits) -> {
+            final var result = edits.isEmpty() ? text : apply(text, edits);
+            writer.append(result);
+            if (result.length() > 0 && result.charAt(result.length() - 1) != '\n') {
+                writer.newLine();
+            }
+        });
+    }
+
+    /**
+     * Rewrites a file like {@link #rewrite(BufferedReader, BufferedWriter)}, but writes a {@link UnifiedDiff} of the
+     * statements that changed instead of the whole file. Nothing is written if nothing was replaced.
+     * @param path the path of the file in the diff's headers
+     * @return true if anything was replaced
+     */
+    public boolean diff(final BufferedReader reader, final String path, final BufferedWriter writer) throws IOException {
+        final var diff = new UnifiedDiff(path, writer);
+        rewrite(reader, (text, edits) -> {
+            if (edits.isEmpty()) {
+                diff.unchanged(text);
+            } else {
+                diff.changed(lines(text), lines(apply(text, edits)));
+            }
+        });
+        if (!lineBreakAtEnd) {
+            diff.noNewlineAtEnd();
+        }
+        return diff.finish();
+    }
+
+    private boolean rewrite(final BufferedReader reader, final StatementWriter writer) throws IOException {
+        final var lexer = new BuildScriptLexer();
+        var changed = false;
+        var statementLines = 0;
+        lineBreakAtEnd = true;
+
+        String line;
+        while ((line = readLine(reader)) != null) {
+            lines++;
+            statementLines++;
+            if (lineBreakAtEnd) {
+                lexer.appendLine(line);
+            } else {
+                lexer.append(line);
+            }
+            if (lexer.atStatementEnd()) {
+                changed |= write(lexer, writer, statementLines);
+                lexer.reset();
+                statementLines = 0;
+            }
+        }
+
+        return write(lexer, writer, statementLines) || changed;
+    }
+
+    /**
+     * Reads a line like {@link BufferedReader#readLine()} does, but keeps track of whether it ended with a line break,
+     * which the last line of a file doesn't have to.
+     */
+    private String readLine(final BufferedReader reader) throws IOException {
+        lineBuffer.setLength(0);
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                lineBreakAtEnd = true;
+                return lineBuffer.toString();
+            }
+            lineBuffer.append((char) c);
+        }
+
+        if (lineBuffer.length() == 0) {
+            return null;
+        }
+        lineBreakAtEnd = false;
+        return lineBuffer.toString();
+    }
+
+    public List<BuildGradleReplacer> getReplacers() {
+        return List.of(replacers);
+    }
+
+    /**
+     * @return for each replacer, by index, how many times its group and name were found in a declaration
+     * and the rest of the declaration was checked
+     */
+    public int[] getAttempts() {
+        return attemptCounts.clone();
+    }
+
+    /**
+     * @return for each replacer, by index, how many of its attempts matched and were replaced
+     */
+    public int[] getHits() {
+        return hitCounts.clone();
+    }
+
+    /**
+     * @return the number of lines read by {@link #rewrite(BufferedReader, BufferedWriter)}
+     * or {@link #diff(BufferedReader, String, BufferedWriter)}
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * @return how many of the lines read by {@link #rewrite(BufferedReader, BufferedWriter)} were in statements
+     * where no replacer's group and name were found
+     */
+    public int getRejectedLines() {
+        return rejectedLines;
+    }
+
+    private boolean write(final BuildScriptLexer lexer, final StatementWriter writer, final int statementLines) throws IOException {
+        found = false;
+        final var edits = edits(lexer);
+        if (!found) {
+            rejectedLines += statementLines;
+        }
+        writer.write(lexer.getText(), edits);
+        return !edits.isEmpty();
+    }
+
+    /**
+     * @return the lines of a statement that changed, which ends with a newline unless it's the end of the file
+     */
+    private static List<String> lines(final CharSequence text) {
+        final var result = new ArrayList<String>();
+        var from = 0;
+        while (from < text.length()) {
+            var end = from;
+            while (end < text.length() && text.charAt(end) != '\n') {
+                end++;
+            }
+            result.add(text.subSequence(from, end).toString());
+            from = end + 1;
+        }
+        return result;
+    }
+
+    private List<Edit> edits(final BuildScriptLexer lexer) {
+        if (!lexer.mayDeclare()) {
+            return List.of();
+        }
+
+        final var tokens = lexer.getTokens();
+        final var edits = new ArrayList<Edit>();
+
+        var i = 0;
+        while (i < tokens.size()) {
+            if (isMapEntry(lexer, i)) {
+                i = mapNotation(lexer, i, edits);
+            } else {
+                if (tokens.get(i).getKind() == BuildScriptLexer.Kind.STRING) {
+                    stringNotation(lexer, i, edits);
+                }
+                i++;
+            }
+        }
+
+        return edits;
+    }
+
+    private void stringNotation(final BuildScriptLexer lexer, final int index, final List<Edit> edits) {
+        final var token = lexer.getTokens().get(index);
+        final var groupEnd = lexer.indexOf(':', token, 0);
+        if (groupEnd < 0) {
+            return;
+        }
+
+        final var candidates = lookUp(lexer.content(token, lexer.indexOf(':', token, groupEnd + 1)));
+        if (candidates == null) {
+            return;
+        }
+
+        final var coordinates = lexer.content(token);
+        final var replacer = match(candidates, candidate -> candidate.matchesCoordinates(coordinates));
+        if (replacer == null) {
+            return;
+        }
+
+        // the replacement has its own parentheses, so it takes the place of the ones around the string,
+        // or of the space between a configuration name and the string
+        final var text = lexer.getText();
+        var start = token.getStart();
+        var end = token.getEnd();
+        if (start > 0 && end < text.length() && text.charAt(start - 1) == '(' && text.charAt(end) == ')') {
+            start--;
+            end++;
+        } else if (index > 0 && lexer.getTokens().get(index - 1).getKind() == BuildScriptLexer.Kind.WORD) {
+            start = spacesBefore(text, lexer.getTokens().get(index - 1).getEnd(), start);
+        }
+        edits.add(new Edit(start, end, replacer.getReplacement()));
+    }
+
+    /**
+     * @return the index of the first token after the map entries that start at {@code first}
+     */
+    private int mapNotation(final BuildScriptLexer lexer, final int first, final List<Edit> edits) {
+        final var tokens = lexer.getTokens();
+        final var fields = new HashMap<String, String>();
+        final var values = new ArrayList<Integer>();
+        var understood = true;
+
+        var i = first;
+        while (true) {
+            final var key = lexer.text(tokens.get(i));
+            final var value = tokens.get(i + 2);
+            values.add(i + 2);
+            understood &= List.of("group", "name", "version", "classifier").contains(key)
+                    && fields.put(key, lexer.content(value)) == null
+                    && (!value.isInterpolated() || "version".equals(key));
+            i += 3;
+
+            if (i < tokens.size() && lexer.isSymbol(tokens.get(i), ',') && isMapEntry(lexer, i + 1)) {
+                i++;
+            } else {
+                break;
+            }
+        }
+
+        if (!understood || !fields.containsKey("group") || !fields.containsKey("name")) {
+            // not a dependency, but it could be a map of them, like [guava: 'com.google.guava:guava:31.1-jre']
+            for (final var value : values) {
+                stringNotation(lexer, value, edits);
+            }
+            return i;
+        }
+
+        final var candidates = lookUp(fields.get("group") + ":" + fields.get("name"));
+        if (candidates == null) {
+            return i;
+        }
+
+        // the replacement goes where the parenthesized entries were, or where the entries of a command like
+        // `implementation group: ..., name: ...` were, but only if nothing follows them on the line
+        final var text = lexer.getText();
+        final var before = first > 0 ? tokens.get(first - 1) : null;
+        final var after = i < tokens.size() ? tokens.get(i) : null;
+        final var newline = text.indexOf("\n", tokens.get(i - 1).getEnd());
+        var start = -1;
+        var end = -1;
+        if (before != null && after != null && lexer.isSymbol(before, '(') && lexer.isSymbol(after, ')')) {
+            start = before.getStart();
+            end = after.getEnd();
+        } else if (before != null && before.getKind() == BuildScriptLexer.Kind.WORD
+                && (after == null || lexer.isSymbol(after, ';') || lexer.isSymbol(after, '}')
+                        || (newline >= 0 && newline < after.getStart()))) {
+            start = spacesBefore(text, before.getEnd(), tokens.get(first).getStart());
+            end = tokens.get(i - 1).getEnd();
+        }
+
+        final var replaceable = start >= 0;
+        final var replacer = match(candidates, candidate -> replaceable
+                && candidate.matchesMap(fields.get("version"), fields.get("classifier")));
+        if (replacer != null) {
+            edits.add(new Edit(start, end, replacer.getReplacement()));
+        }
+        return i;
+    }
+
+    /**
+     * @return the indices of the replacers for a group and name, or null if there aren't any
+     */
+    private int[] lookUp(final String literal) {
+        final var candidates = byLiteral.get(literal);
+        found |= candidates != null;
+        return candidates;
+    }
+
+    /**
+     * @return the first candidate that matches, counting an attempt for each one tried
+     */
+    private BuildGradleReplacer match(final int[] candidates, final Predicate<BuildGradleReplacer> matches) {
+        for (final var index : candidates) {
+            attemptCounts[index]++;
+            if (matches.test(replacers[index])) {
+                hitCounts[index]++;
+                return replacers[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the tokens at {@code index} are a {@code key: 'value'} or {@code key = "value"} map entry
+     */
+    private static boolean isMapEntry(final BuildScriptLexer lexer, final int index) {
+        final var tokens = lexer.getTokens();
+        return index + 2 < tokens.size()
+                && tokens.get(index).getKind() == BuildScriptLexer.Kind.WORD
+                && (lexer.isSymbol(tokens.get(index + 1), ':') || lexer.isSymbol(tokens.get(index + 1), '='))
+                && tokens.get(index + 2).getKind() == BuildScriptLexer.Kind.STRING;
+    }
+
+    /**
+     * @return the start of the spaces and tabs just before {@code index}, if nothing else is between it and {@code limit}
+     */
+    private static int spacesBefore(final CharSequence text, final int limit, final int index) {
+        var start = index;
+        while (start > limit && (text.charAt(start - 1) == ' ' || text.charAt(start - 1) == '\t')) {
+            start--;
+        }
+        return start == limit ? start : index;
+    }
+
+    private static StringBuilder apply(final CharSequence text, final List<Edit> edits) {
+        final var result = new StringBuilder(text.length() + 32 * edits.size());
+        var copied = 0;
+        for (final var edit : edits) {
+            result.append(text, copied, edit.start).append(edit.replacement);
+            copied = edit.end;
+        }
+        return result.append(text, copied, text.length());
+    }
+
+    private static int[] append(final int[] first, final int[] second) {
+        final var result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * Writes one statement, given its original text and the edits to it, which may be none.
+     */
+    private interface StatementWriter {
+        void write(CharSequence text, List<Edit> edits) throws IOException;
+    }
+
+    private static class Edit {
+        private final int start;
+        private final int end;
+        private final String replacement;
+
+        private Edit(final int start, final int end, final String replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+    }
+}
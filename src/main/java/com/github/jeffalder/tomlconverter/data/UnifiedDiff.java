@@ -0,0 +1,250 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>This class writes and applies unified diffs of a single file, like {@code diff -u} and {@code patch} do,
+ * with three lines of context around each change.
+ *
+ * <p>A diff is written as the file is read: the {@link RewriteEngine} reports the text that's unchanged and each statement
+ * that changed, and hunks are written out as soon as they're complete. Only the lines of the hunk being built, and the few
+ * lines of context before it, are kept in memory. The headers use {@code a/} and {@code b/} prefixes, so the diffs of a
+ * whole build can be concatenated and applied from the root project directory with {@code git apply} or {@code patch -p1}.
+ */
+public final class UnifiedDiff {
+    private static final int CONTEXT = 3;
+    private static final String NO_NEWLINE = "\\ No newline at end of file";
+    private static final Pattern HUNK_HEADER = Pattern.compile("@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+
+    private final String path;
+    private final BufferedWriter writer;
+    private final Deque<String> before = new ArrayDeque<>();
+    private final List<String> hunk = new ArrayList<>();
+    private boolean headerWritten;
+    private int oldLine = 1;
+    private int newLine = 1;
+    private int hunkOldStart;
+    private int hunkNewStart;
+    private int hunkOldCount;
+    private int hunkNewCount;
+    private int trailing;
+    private boolean newlineAtEnd = true;
+
+    /**
+     * @param path the path of the file, relative to the directory the diff is applied in
+     */
+    UnifiedDiff(final String path, final BufferedWriter writer) {
+        this.path = path;
+        this.writer = writer;
+    }
+
+    /**
+     * Reports unchanged text, which ends with a newline unless it's the end of the file. Only the lines that can be
+     * context for a hunk are copied out of it.
+     */
+    void unchanged(final CharSequence text) throws IOException {
+        var remaining = 0;
+        for (var i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n' || i == text.length() - 1) {
+                remaining++;
+            }
+        }
+
+        var from = 0;
+        while (from < text.length()) {
+            var end = from;
+            while (end < text.length() && text.charAt(end) != '\n') {
+                end++;
+            }
+            if (hunk.isEmpty() && remaining > CONTEXT) {
+                // too far from the next change to be context for it
+                oldLine++;
+                newLine++;
+                before.clear();
+            } else {
+                unchangedLine(text.subSequence(from, end).toString());
+            }
+            remaining--;
+            from = end + 1;
+        }
+    }
+
+    private void unchangedLine(final String line) throws IOException {
+        oldLine++;
+        newLine++;
+        if (hunk.isEmpty()) {
+            before.addLast(line);
+            if (before.size() > CONTEXT) {
+                before.removeFirst();
+            }
+            return;
+        }
+
+        hunk.add(" " + line);
+        hunkOldCount++;
+        hunkNewCount++;
+        if (++trailing == 2 * CONTEXT) {
+            // the next change is far enough away to be in a hunk of its own
+            final var next = new ArrayList<>(hunk.subList(hunk.size() - CONTEXT, hunk.size()));
+            dropTrailing(CONTEXT);
+            flush();
+            for (final var context : next) {
+                before.addLast(context.substring(1));
+            }
+        }
+    }
+
+    void changed(final List<String> oldLines, final List<String> newLines) {
+        if (hunk.isEmpty()) {
+            hunkOldStart = oldLine - before.size();
+            hunkNewStart = newLine - before.size();
+            hunkOldCount = before.size();
+            hunkNewCount = before.size();
+            for (final var context : before) {
+                hunk.add(" " + context);
+            }
+            before.clear();
+        }
+
+        for (final var line : oldLines) {
+            hunk.add("-" + line);
+        }
+        for (final var line : newLines) {
+            hunk.add("+" + line);
+        }
+        hunkOldCount += oldLines.size();
+        hunkNewCount += newLines.size();
+        oldLine += oldLines.size();
+        newLine += newLines.size();
+        trailing = 0;
+    }
+
+    /**
+     * Reports that the last line of the file doesn't end with a newline. This is marked in the diff if the last hunk
+     * reaches the end of the file, or {@code git apply} and {@code patch} won't apply it.
+     */
+    void noNewlineAtEnd() {
+        newlineAtEnd = false;
+    }
+
+    /**
+     * Writes the last hunk.
+     * @return true if anything changed, so there is a diff
+     */
+    boolean finish() throws IOException {
+        if (!hunk.isEmpty()) {
+            final var reachesEnd = trailing <= CONTEXT;
+            dropTrailing(trailing - CONTEXT);
+            if (reachesEnd && !newlineAtEnd) {
+                markNoNewline();
+            }
+            flush();
+        }
+        return headerWritten;
+    }
+
+    /**
+     * Marks the last line of the old and the new file. Those are the same context line, or else the last
+     * removed and the last added line of a change at the end of the file.
+     */
+    private void markNoNewline() {
+        if (trailing > 0) {
+            hunk.add(NO_NEWLINE);
+            return;
+        }
+
+        var lastRemoved = hunk.size() - 1;
+        while (lastRemoved >= 0 && !hunk.get(lastRemoved).startsWith("-")) {
+            lastRemoved--;
+        }
+        if (hunk.get(hunk.size() - 1).startsWith("+")) {
+            hunk.add(NO_NEWLINE);
+        }
+        if (lastRemoved >= 0) {
+            hunk.add(lastRemoved + 1, NO_NEWLINE);
+        }
+    }
+
+    private void dropTrailing(final int count) {
+        for (var i = 0; i < count; i++) {
+            hunk.remove(hunk.size() - 1);
+        }
+        hunkOldCount -= Math.max(count, 0);
+        hunkNewCount -= Math.max(count, 0);
+    }
+
+    private void flush() throws IOException {
+        if (!headerWritten) {
+            writer.write("--- a/" + path);
+            writer.newLine();
+            writer.write("+++ b/" + path);
+            writer.newLine();
+            headerWritten = true;
+        }
+
+        writer.write("@@ -" + range(hunkOldStart, hunkOldCount) + " +" + range(hunkNewStart, hunkNewCount) + " @@");
+        writer.newLine();
+        for (final var line : hunk) {
+            writer.write(line);
+            writer.newLine();
+        }
+        hunk.clear();
+        trailing = 0;
+    }
+
+    private static String range(final int start, final int count) {
+        // an empty range starts at the line before it, by convention
+        return (count == 0 ? start - 1 : start) + "," + count;
+    }
+
+    /**
+     * Applies a diff written by this class to the lines of a file.
+     * @param reverse true to undo the diff instead
+     * @return the changed lines
+     * @throws IllegalArgumentException if the file doesn't have the lines the diff expects
+     */
+    public static List<String> apply(final List<String> lines, final List<String> diff, final boolean reverse) {
+        final var removed = reverse ? '+' : '-';
+        final var added = reverse ? '-' : '+';
+        final var result = new ArrayList<String>(lines.size());
+        var copied = 0;
+
+        for (final var line : diff) {
+            if (line.startsWith("--- ") || line.startsWith("+++ ") || line.startsWith("\\")) {
+                continue;
+            }
+
+            final var header = HUNK_HEADER.matcher(line);
+            if (header.matches()) {
+                final var start = Integer.parseInt(header.group(reverse ? 3 : 1));
+                final var count = header.group(reverse ? 4 : 2);
+                // an empty range names the line before it
+                final var first = "0".equals(count) ? start : start - 1;
+                if (first < copied || first > lines.size()) {
+                    throw new IllegalArgumentException("The diff doesn't apply at line " + start);
+                }
+                result.addAll(lines.subList(copied, first));
+                copied = first;
+            } else if (!line.isEmpty() && line.charAt(0) == added) {
+                result.add(line.substring(1));
+            } else {
+                if (copied >= lines.size() || !lines.get(copied).equals(line.substring(Math.min(1, line.length())))) {
+                    throw new IllegalArgumentException("The diff doesn't apply at line " + (copied + 1));
+                }
+                if (line.isEmpty() || line.charAt(0) != removed) {
+                    result.add(lines.get(copied));
+                }
+                copied++;
+            }
+        }
+
+        result.addAll(lines.subList(copied, lines.size()));
+        return result;
+    }
+}
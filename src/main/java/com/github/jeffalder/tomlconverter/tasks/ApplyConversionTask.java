@@ -0,0 +1,203 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.FilePreparation;
+import com.github.jeffalder.tomlconverter.OutputMode;
+import com.github.jeffalder.tomlconverter.data.UnifiedDiff;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * <p>This task installs the output of every {@link FilePreparation} task over its target file, in-process,
+ * as an alternative to running the script from {@link ScriptWriterTask}.
+ *
+ * <p>It's all-or-nothing. Every changed file is first written to a temporary file next to its target, with
+ * a backup of the target. Only then are the temporary files moved over their targets. If anything fails,
+ * the targets that were already replaced are restored from their backups. Targets that are byte-for-byte the
+ * same as their prepared file are left alone.
+ *
+ * <p>A prepared file written in {@link OutputMode#PATCH} mode is a diff, which is applied to its target. A target the
+ * diff was already applied to is left alone, and one that changed in other ways since the diff was written is an error.
+ */
+public class ApplyConversionTask extends PreparedFilesTask {
+    @Internal
+    public Property<ConversionMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    private final Property<ConversionMetricsService> metricsService = getProject().getObjects()
+            .property(ConversionMetricsService.class);
+
+    @TaskAction
+    public void action() throws IOException {
+        final var start = System.nanoTime();
+        final var installs = new ArrayList<Install>();
+        var unchanged = 0;
+
+        try {
+            for (final var copy : getCopies().get().entrySet()) {
+                final var source = Path.of(copy.getKey());
+                final var target = Path.of(copy.getValue().getPath());
+                if (!Files.exists(source)) {
+                    continue;
+                }
+                final var contents = contents(source, target, copy.getValue().getMode());
+                if (contents == null) {
+                    unchanged++;
+                    continue;
+                }
+                installs.add(Install.stage(contents, target));
+            }
+        } catch (final IOException | RuntimeException e) {
+            discardAll(installs, e);
+            throw new GradleException("Unable to prepare the conversion, nothing was changed", e);
+        }
+
+        final var committed = new ArrayList<Install>();
+        try {
+            for (final var install : installs) {
+                install.commit();
+                committed.add(install);
+            }
+        } catch (final IOException | RuntimeException e) {
+            for (final var install : committed) {
+                try {
+                    install.rollback();
+                } catch (final IOException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+            }
+            discardAll(installs, e);
+            throw new GradleException("Unable to apply the conversion, the changed files were restored", e);
+        }
+
+        final var cleanupFailure = new IOException("Unable to delete the backups of the converted files");
+        discardAll(installs, cleanupFailure);
+        if (cleanupFailure.getSuppressed().length > 0) {
+            throw cleanupFailure;
+        }
+
+        getLogger().lifecycle("Applied {} converted files, {} were already up to date", installs.size(), unchanged);
+        metricsService.get().record(getPath(), "apply", start);
+    }
+
+    private static void discardAll(final List<Install> installs, final Exception failure) {
+        for (final var install : installs) {
+            try {
+                install.discard();
+            } catch (final IOException discardFailure) {
+                failure.addSuppressed(discardFailure);
+            }
+        }
+    }
+
+    /**
+     * @return what the target should contain, or null if it already does
+     */
+    private static byte[] contents(final Path source, final Path target, final OutputMode mode) throws IOException {
+        if (mode == OutputMode.FILES) {
+            final var contents = Files.readAllBytes(source);
+            final var same = Files.exists(target)
+                    && Files.size(target) == contents.length
+                    && Arrays.equals(contents, Files.readAllBytes(target));
+            return same ? null : contents;
+        }
+
+        final var lines = Files.readAllLines(target);
+        final var diff = Files.readAllLines(source);
+        try {
+            final var result = new StringBuilder();
+            for (final var line : UnifiedDiff.apply(lines, diff, false)) {
+                result.append(line).append(System.lineSeparator());
+            }
+            return result.toString().getBytes(StandardCharsets.UTF_8);
+        } catch (final IllegalArgumentException e) {
+            try {
+                UnifiedDiff.apply(lines, diff, true);
+                return null;
+            } catch (final IllegalArgumentException notApplied) {
+                throw new GradleException(target + " has changed since " + source + " was written", e);
+            }
+        }
+    }
+
+    private static void move(final Path from, final Path to) throws IOException {
+        try {
+            Files.move(from, to, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(from, to, REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * One target file being replaced. The temporary file and the backup are in the target's directory,
+     * so moving them over the target is a rename.
+     */
+    private static class Install {
+        private final Path target;
+        private final Path staged;
+        private final Path backup;
+
+        private Install(final Path target, final Path staged, final Path backup) {
+            this.target = target;
+            this.staged = staged;
+            this.backup = backup;
+        }
+
+        static Install stage(final byte[] contents, final Path target) throws IOException {
+            Files.createDirectories(target.getParent());
+
+            final var staged = sibling(target, "new");
+            Path backup = null;
+            if (Files.exists(target)) {
+                backup = sibling(target, "backup");
+                Files.copy(target, backup, COPY_ATTRIBUTES);
+                // start from a copy of the target so the installed file keeps its permissions
+                Files.copy(target, staged, COPY_ATTRIBUTES);
+            }
+
+            Files.write(staged, contents);
+            return new Install(target, staged, backup);
+        }
+
+        void commit() throws IOException {
+            move(staged, target);
+        }
+
+        void rollback() throws IOException {
+            if (backup == null) {
+                Files.deleteIfExists(target);
+            } else {
+                move(backup, target);
+            }
+        }
+
+        /**
+         * Deletes whatever temporary files are left.
+         */
+        void discard() throws IOException {
+            for (final var file : backup == null ? List.of(staged) : List.of(staged, backup)) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        private static Path sibling(final Path target, final String kind) {
+            return target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + "." + kind);
+        }
+    }
+}
@@ -1,33 +1,67 @@
 package com.github.jeffalder.tomlconverter.tasks;
 
 import com.github.jeffalder.tomlconverter.FilePreparation;
+import com.github.jeffalder.tomlconverter.OutputMode;
 import com.github.jeffalder.tomlconverter.TomlConverterPlugin;
 import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
+import com.github.jeffalder.tomlconverter.data.RewriteEngine;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.Transformer;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
 
-import java.io.IOException;
-import java.nio.file.Files;
+import javax.inject.Inject;
+import java.io.File;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * This task, run in each subproject, reads the build.gradle[.kts] file,
- * transforms each line to use the toml replacement (if it can),
- * and writes the resulting line to build/build.gradle[.kts].new.
+ * transforms each dependency declaration to use the toml replacement (if it can) with a single {@link RewriteEngine} pass,
+ * and writes the resulting line to build/build.gradle[.kts].new. If nothing changed, there is no output file.
+ * In {@link OutputMode#PATCH} mode, it writes a unified diff of the changed statements to build/build.gradle[.kts].patch instead.
+ *
+ * <p>The rewrite itself runs as a {@link RewriteBuildFileAction} on the worker pool, so the rewrites for
+ * many projects run concurrently even without {@code --parallel}. Each one only looks for the libraries
+ * declared in its project or subprojects.
  */
-public class BuildGradleRewriterTask extends DefaultTask implements FilePreparation {
+@CacheableTask
+public abstract class BuildGradleRewriterTask extends DefaultTask implements FilePreparation {
 
     @Internal
     @Override
     public String getTargetFile() {
-        return getProject().getBuildFile().getAbsolutePath();
+        return targetFile;
     }
 
+    private final String targetFile = getProject().getBuildFile().getAbsolutePath();
+
+    // the path in the headers of a diff, so the diffs of all the projects can be applied from the root project directory
+    private final String diffPath = getProject().getRootDir().toPath()
+            .relativize(getProject().getBuildFile().toPath())
+            .toString()
+            .replace('\\', '/');
+
+    @Input
+    @Override
+    public Property<OutputMode> getOutputMode() {
+        return outputMode;
+    }
+
+    private final Property<OutputMode> outputMode = getProject().getObjects().property(OutputMode.class)
+            .convention(OutputMode.FILES);
+
     @OutputFile
     @Override
     public RegularFileProperty getOutputFile() {
@@ -35,36 +69,93 @@ public class BuildGradleRewriterTask extends DefaultTask implements FilePreparat
     }
 
     RegularFileProperty outputFile = getProject().getObjects().fileProperty()
-            .fileValue(getProject().getBuildDir().toPath()
-                    .resolve(TomlConverterPlugin.BUILD_SUBDIR)
-                    .resolve(getProject().getBuildFile().getName() + ".new")
-                    .toFile());
+            .fileProvider(outputMode.map(outputFileIn(getProject())));
 
-    @TaskAction
-    public void action() throws IOException {
-        final var dir = outputFile.get().getAsFile().getParentFile();
-        if (!dir.exists() && !dir.mkdirs()) {
-            throw new GradleException("Unable to create " + dir);
-        }
-
-        try (
-                final var reader = Files.newBufferedReader(getProject().getBuildFile().toPath());
-                final var writer = Files.newBufferedWriter(outputFile.get().getAsFile().toPath())
-        ) {
-            for(var line : reader.lines().collect(Collectors.toUnmodifiableList())) {
-                for(final var replacer : buildGradleReplacers) {
-                    line = replacer.replace(line);
-                }
-
-                writer.write(line);
-                writer.newLine();
-            }
-        }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getBuildFile() {
+        return buildFile;
+    }
+
+    private final RegularFileProperty buildFile = getProject().getObjects().fileProperty()
+            .fileValue(getProject().getBuildFile());
+
+    /**
+     * @return the list of {@link BuildGradleReplacer}s written by the {@link TomlWriterTask}
+     */
+    @Internal
+    public RegularFileProperty getReplacersFile() {
+        return replacersFile;
+    }
+
+    private final RegularFileProperty replacersFile = getProject().getObjects().fileProperty();
+
+    /**
+     * @return the {@link DependencyExtractionTask} outputs for this project and its subprojects,
+     * since a build file can declare dependencies for its subprojects too
+     */
+    @Internal
+    public ConfigurableFileCollection getDependencyFiles() {
+        return dependencyFiles;
+    }
+
+    private final ConfigurableFileCollection dependencyFiles = getProject().getObjects().fileCollection();
+
+    /**
+     * @return the replacers for the libraries in {@link #getDependencyFiles()}. These are the input rather than the whole
+     * replacers file, so when libraries are added elsewhere, a build file whose libraries kept their keys stays UP-TO-DATE.
+     */
+    @Input
+    public Provider<List<BuildGradleReplacer>> getReplacers() {
+        return replacersFile.map(file -> rewriteEngineService.get()
+                .replacersFor(file.getAsFile(), dependencyCollectorService.get().collect(dependencyFiles)));
     }
 
-    public BuildGradleRewriterTask setBuildGradleReplacers(final List<BuildGradleReplacer> buildGradleReplacers) {
-        this.buildGradleReplacers = buildGradleReplacers;
-        return this;
+    @Internal
+    public Property<DependencyCollectorService> getDependencyCollectorService() {
+        return dependencyCollectorService;
+    }
+
+    private final Property<DependencyCollectorService> dependencyCollectorService = getProject().getObjects()
+            .property(DependencyCollectorService.class);
+
+    @Internal
+    public Property<RewriteEngineService> getRewriteEngineService() {
+        return rewriteEngineService;
+    }
+
+    private final Property<RewriteEngineService> rewriteEngineService = getProject().getObjects().property(RewriteEngineService.class);
+
+    @Internal
+    public Property<ConversionMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    private final Property<ConversionMetricsService> metricsService = getProject().getObjects()
+            .property(ConversionMetricsService.class);
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    // only the path is captured, so the provider never touches the project at execution time
+    private static Transformer<File, OutputMode> outputFileIn(final Project project) {
+        final var prefix = project.getBuildDir().toPath()
+                .resolve(TomlConverterPlugin.BUILD_SUBDIR)
+                .resolve(project.getBuildFile().getName())
+                .toString();
+        return mode -> new File(prefix + mode.getExtension());
+    }
+
+    @TaskAction
+    public void action() {
+        getWorkerExecutor().noIsolation().submit(RewriteBuildFileAction.class, parameters -> {
+            parameters.getBuildFile().set(buildFile);
+            parameters.getReplacers().set(getReplacers());
+            parameters.getOutputFile().set(outputFile);
+            parameters.getDiffPath().set(diffPath);
+            parameters.getOutputMode().set(outputMode);
+            parameters.getMetricsService().set(metricsService);
+            parameters.getTaskPath().set(getPath());
+        });
     }
-    private List<BuildGradleReplacer> buildGradleReplacers;
 }
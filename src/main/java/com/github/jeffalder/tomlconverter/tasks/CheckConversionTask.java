@@ -0,0 +1,297 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.ExistingCatalog;
+import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
+import com.github.jeffalder.tomlconverter.data.Dependency;
+import com.github.jeffalder.tomlconverter.data.GVACoordinates;
+import com.github.jeffalder.tomlconverter.data.LibraryEntry;
+import com.github.jeffalder.tomlconverter.data.RewriteEngine;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
+
+/**
+ * <p>This task checks, after the conversion, that every dependency the {@link DependencyExtractionTask}s find
+ * is in {@literal gradle/libs.versions.toml}, so CI can fail when someone adds a {@code 'group:name:version'}
+ * declaration for a new library instead of adding it to the catalog. Libraries that are in the catalog aren't reported,
+ * however they're declared.
+ *
+ * <p>Each missing dependency is looked for in the build files of its project and the projects above it,
+ * with the same {@link RewriteEngine} the conversion uses, so the report says where it's declared. What each build file
+ * declares is cached in build/tomlConverter/check-cache.ser, by a fingerprint of the file's contents and the missing
+ * dependencies it was searched for, so unchanged build files aren't read again by the lexer. When nothing changed at all,
+ * the task is UP-TO-DATE.
+ *
+ * <p>The report is written to build/tomlConverter/check.txt.
+ */
+public class CheckConversionTask extends DefaultTask {
+    /**
+     * @return the path of each project mapped to the absolute path of its {@link DependencyExtractionTask} output
+     */
+    @Input
+    public MapProperty<String, String> getDependencyFiles() {
+        return dependencyFiles;
+    }
+
+    private final MapProperty<String, String> dependencyFiles = getProject().getObjects().mapProperty(String.class, String.class);
+
+    /**
+     * @return the path of each project mapped to the absolute path of its build file
+     */
+    @Input
+    public MapProperty<String, String> getBuildFiles() {
+        return buildFiles;
+    }
+
+    private final MapProperty<String, String> buildFiles = getProject().getObjects().mapProperty(String.class, String.class);
+
+    /**
+     * @return the contents of the files in {@link #getDependencyFiles()} and {@link #getBuildFiles()}
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public ConfigurableFileCollection getInputFiles() {
+        return inputFiles;
+    }
+
+    private final ConfigurableFileCollection inputFiles = getProject().getObjects().fileCollection();
+
+    /**
+     * @return the catalog, which doesn't have to exist
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public ConfigurableFileCollection getCatalog() {
+        return catalog;
+    }
+
+    private final ConfigurableFileCollection catalog = getProject().getObjects().fileCollection();
+
+    @OutputFile
+    public RegularFileProperty getReportFile() {
+        return reportFile;
+    }
+
+    private final RegularFileProperty reportFile = getProject().getObjects().fileProperty()
+            .fileValue(getProject().getBuildDir().toPath()
+                    .resolve(BUILD_SUBDIR)
+                    .resolve("check.txt")
+                    .toFile());
+
+    @LocalState
+    public RegularFileProperty getCacheFile() {
+        return cacheFile;
+    }
+
+    private final RegularFileProperty cacheFile = getProject().getObjects().fileProperty()
+            .fileValue(getProject().getBuildDir().toPath()
+                    .resolve(BUILD_SUBDIR)
+                    .resolve("check-cache.ser")
+                    .toFile());
+
+    @Internal
+    public Property<DependencyCollectorService> getDependencyCollectorService() {
+        return dependencyCollectorService;
+    }
+
+    private final Property<DependencyCollectorService> dependencyCollectorService = getProject().getObjects()
+            .property(DependencyCollectorService.class);
+
+    @Internal
+    public Property<ConversionMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    private final Property<ConversionMetricsService> metricsService = getProject().getObjects()
+            .property(ConversionMetricsService.class);
+
+    private final String rootDir = getProject().getRootDir().getAbsolutePath();
+
+    @TaskAction
+    public void action() throws IOException {
+        final var start = System.nanoTime();
+        final var catalogFile = catalog.getFiles().stream().filter(File::exists).findFirst();
+        final var existing = catalogFile.isPresent() ? ExistingCatalog.readLibraries(catalogFile.get()) : ExistingCatalog.empty();
+
+        final var missing = new HashMap<String, Set<Dependency>>();
+        for (final var project : dependencyFiles.get().entrySet()) {
+            final var dependencies = dependencyCollectorService.get().collect(List.of(new File(project.getValue())));
+            missing.put(project.getKey(), dependencies.stream()
+                    .filter(dependency -> !existing.contains(dependency))
+                    .collect(Collectors.toCollection(TreeSet::new)));
+        }
+
+        final Map<String, CachedBuildFile> cache = readCache();
+        final var located = ConcurrentHashMap.<Dependency>newKeySet();
+        final var report = buildFiles.get().entrySet().parallelStream()
+                .flatMap(project -> {
+                    final var searchedFor = new TreeSet<Dependency>();
+                    missing.forEach((path, dependencies) -> {
+                        if (isWithin(path, project.getKey())) {
+                            searchedFor.addAll(dependencies);
+                        }
+                    });
+                    final var found = declared(Path.of(project.getValue()), searchedFor, cache);
+                    located.addAll(found);
+                    return found.stream().map(dependency -> Path.of(rootDir).relativize(Path.of(project.getValue())) + ": " + coordinates(dependency));
+                })
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        missing.forEach((path, dependencies) -> {
+            for (final var dependency : dependencies) {
+                if (!located.contains(dependency)) {
+                    report.add("project " + path + ": " + coordinates(dependency) + ", not declared in a build file");
+                }
+            }
+        });
+
+        ObjectFiles.write(cacheFile.get().getAsFile(), new HashMap<>(cache));
+        Files.write(reportFile.get().getAsFile().toPath(), report);
+        metricsService.get().record(getPath(), "check", start);
+
+        if (!report.isEmpty()) {
+            throw new GradleException(report.size() + " dependencies aren't in gradle/libs.versions.toml, see " + reportFile.get().getAsFile());
+        }
+    }
+
+    /**
+     * @return the dependencies that the build file declares, out of {@code searchedFor}
+     */
+    private static List<Dependency> declared(final Path buildFile, final Set<Dependency> searchedFor, final Map<String, CachedBuildFile> cache) {
+        // a project doesn't need a build file of its own
+        if (searchedFor.isEmpty() || !Files.isRegularFile(buildFile)) {
+            return List.of();
+        }
+
+        try {
+            final var contents = Files.readAllBytes(buildFile);
+            final var fingerprint = fingerprint(contents, searchedFor);
+            final var cached = cache.get(buildFile.toString());
+            if (cached != null && cached.fingerprint.equals(fingerprint)) {
+                return cached.declared;
+            }
+
+            final var candidates = new ArrayList<>(searchedFor);
+            final var replacers = new ArrayList<BuildGradleReplacer>();
+            for (var i = 0; i < candidates.size(); i++) {
+                final var dependency = candidates.get(i);
+                final var coordinates = new GVACoordinates(dependency.getGroup(), dependency.getName(), dependency.getVersion())
+                        .addClassifier(dependency.getClassifier());
+                replacers.add(new BuildGradleReplacer("missing" + i, new LibraryEntry(coordinates, null), dependency.getClassifier()));
+            }
+
+            final var engine = new RewriteEngine(replacers);
+            try (final var writer = new BufferedWriter(Writer.nullWriter())) {
+                engine.rewrite(new BufferedReader(new StringReader(new String(contents, StandardCharsets.UTF_8))), writer);
+            }
+
+            final var declared = new ArrayList<Dependency>();
+            final var hits = engine.getHits();
+            for (var i = 0; i < hits.length; i++) {
+                if (hits[i] > 0) {
+                    declared.add(candidates.get(i));
+                }
+            }
+            cache.put(buildFile.toString(), new CachedBuildFile(fingerprint, declared));
+            return declared;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, CachedBuildFile> readCache() throws IOException {
+        final var file = cacheFile.get().getAsFile();
+        final Map<String, CachedBuildFile> cache = new ConcurrentHashMap<>();
+        if (file.exists()) {
+            try {
+                cache.putAll(ObjectFiles.<Map<String, CachedBuildFile>>read(file));
+            } catch (final IOException | GradleException | ClassCastException e) {
+                // a cache from an older version of the plugin is just thrown away
+                getLogger().info("Ignoring the unreadable cache {}", file, e);
+            }
+        }
+        return cache;
+    }
+
+    private static String fingerprint(final byte[] contents, final Set<Dependency> searchedFor) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(contents);
+            for (final var dependency : searchedFor) {
+                digest.update((coordinates(dependency) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            final var hex = new StringBuilder();
+            for (final var b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return true if {@code path} is {@code ancestor} or one of its subprojects
+     */
+    private static boolean isWithin(final String path, final String ancestor) {
+        return ancestor.equals(":") || path.equals(ancestor) || path.startsWith(ancestor + ":");
+    }
+
+    private static String coordinates(final Dependency dependency) {
+        final var result = new StringBuilder(dependency.getGroup()).append(':').append(dependency.getName());
+        if (dependency.getVersion() != null) {
+            result.append(':').append(dependency.getVersion());
+        }
+        if (dependency.getClassifier() != null) {
+            result.append(':').append(dependency.getClassifier());
+        }
+        return result.toString();
+    }
+
+    private static class CachedBuildFile implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String fingerprint;
+        private final List<Dependency> declared;
+
+        private CachedBuildFile(final String fingerprint, final List<Dependency> declared) {
+            this.fingerprint = fingerprint;
+            this.declared = List.copyOf(declared);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
+import com.github.jeffalder.tomlconverter.data.RewriteEngine;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>This build service collects where a conversion spends its time, and how well each {@link BuildGradleReplacer} did.
+ * When the build finishes, it writes three reports to the report directory:
+ * <ul>
+ *     <li>{@code timings.csv}: the time spent in each phase of each task that ran</li>
+ *     <li>{@code replacers.csv}: for each replacer, the lines it was scanned against, how often its group and name were found
+ *     in a declaration (attempts), and how many of those were replaced (hits) or not (misses)</li>
+ *     <li>{@code rewrites.csv}: for each build file rewrite, the lines read, and how many of them were in statements
+ *     that named no library in the catalog (rejected)</li>
+ * </ul>
+ *
+ * <p>A report is only written when the build recorded something for it, so a later build that rewrote no build files,
+ * like {@code applyConversion} on its own, leaves the replacer and rewrite reports of the conversion in place.
+ *
+ * <p>Tasks that were UP-TO-DATE or FROM-CACHE did no work, so they aren't in the report. A replacer with no hits
+ * after every build file was rewritten is for a library no build file declares in a form the plugin recognizes.
+ */
+public abstract class ConversionMetricsService implements BuildService<ConversionMetricsService.Parameters>, AutoCloseable {
+    public static final String NAME = "tomlConverterMetrics";
+
+    public interface Parameters extends BuildServiceParameters {
+        DirectoryProperty getReportDirectory();
+    }
+
+    private final Queue<Timing> timings = new ConcurrentLinkedQueue<>();
+    private final Map<String, ReplacerCounts> replacerCounts = new ConcurrentHashMap<>();
+    private final Map<String, int[]> rewrites = new ConcurrentHashMap<>();
+
+    /**
+     * @param startNanos the {@link System#nanoTime()} when the phase started
+     */
+    public void record(final String taskPath, final String phase, final long startNanos) {
+        recordNanos(taskPath, phase, System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(final String taskPath, final String phase, final long nanos) {
+        timings.add(new Timing(taskPath, phase, nanos));
+    }
+
+    /**
+     * Adds the counts from an engine that has finished rewriting a build file.
+     */
+    public void recordRewrite(final String taskPath, final RewriteEngine engine) {
+        rewrites.put(taskPath, new int[]{engine.getLines(), engine.getRejectedLines()});
+
+        final var replacers = engine.getReplacers();
+        final var attempts = engine.getAttempts();
+        final var hits = engine.getHits();
+        for (var i = 0; i < replacers.size(); i++) {
+            final var replacer = replacers.get(i);
+            replacerCounts.computeIfAbsent(replacer.getReplacement(), ignored -> new ReplacerCounts(replacer.getLibrary()))
+                    .add(engine.getLines(), attempts[i], hits[i]);
+        }
+    }
+
+    @Override
+    public void close() {
+        final var dir = getParameters().getReportDirectory().get().getAsFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new GradleException("Unable to create " + dir);
+        }
+
+        try {
+            if (!timings.isEmpty()) {
+                writeTimings(Files.newBufferedWriter(dir.toPath().resolve("timings.csv")));
+            }
+            if (!rewrites.isEmpty()) {
+                writeReplacers(Files.newBufferedWriter(dir.toPath().resolve("replacers.csv")));
+                writeRewrites(Files.newBufferedWriter(dir.toPath().resolve("rewrites.csv")));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeTimings(final BufferedWriter writer) throws IOException {
+        final var sorted = new ArrayList<>(timings);
+        sorted.sort(Comparator.comparing((Timing timing) -> timing.taskPath).thenComparing(timing -> timing.phase));
+
+        try (writer) {
+            writer.write("task,phase,millis");
+            writer.newLine();
+            for (final var timing : sorted) {
+                writer.write(timing.taskPath + "," + timing.phase + "," + String.format(Locale.ROOT, "%.3f", timing.nanos / 1_000_000.0));
+                writer.newLine();
+            }
+        }
+    }
+
+    private void writeReplacers(final BufferedWriter writer) throws IOException {
+        final var sorted = new ArrayList<>(replacerCounts.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+
+        try (writer) {
+            writer.write("replacement,library,linesScanned,attempts,hits,misses");
+            writer.newLine();
+            for (final var entry : sorted) {
+                final var counts = entry.getValue();
+                synchronized (counts) {
+                    writer.write(quoted(entry.getKey()) + "," + quoted(counts.library) + "," + counts.linesScanned + ","
+                            + counts.attempts + "," + counts.hits + "," + (counts.attempts - counts.hits));
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    private void writeRewrites(final BufferedWriter writer) throws IOException {
+        final var sorted = new ArrayList<>(rewrites.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+
+        try (writer) {
+            writer.write("task,lines,rejectedLines");
+            writer.newLine();
+            for (final var entry : sorted) {
+                writer.write(entry.getKey() + "," + entry.getValue()[0] + "," + entry.getValue()[1]);
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String quoted(final String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static class Timing {
+        private final String taskPath;
+        private final String phase;
+        private final long nanos;
+
+        private Timing(final String taskPath, final String phase, final long nanos) {
+            this.taskPath = taskPath;
+            this.phase = phase;
+            this.nanos = nanos;
+        }
+    }
+
+    private static class ReplacerCounts {
+        private final String library;
+        private long linesScanned;
+        private long attempts;
+        private long hits;
+
+        private ReplacerCounts(final String library) {
+            this.library = library;
+        }
+
+        private synchronized void add(final int lines, final int attempts, final int hits) {
+            this.linesScanned += lines;
+            this.attempts += attempts;
+            this.hits += hits;
+        }
+    }
+}
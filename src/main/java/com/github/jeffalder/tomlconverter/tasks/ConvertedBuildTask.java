@@ -0,0 +1,148 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.OutputMode;
+import com.github.jeffalder.tomlconverter.data.UnifiedDiff;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
+
+/**
+ * <p>This task sets up a nested build of the converted project, for the {@link VerifyConversionTask}. The nested build
+ * runs in the project directory itself, so settings, {@code buildSrc}, relative paths and local repositories all work
+ * as they do in the real build. Only two things change, through an init script:
+ * <ul>
+ *     <li>each project whose build file was rewritten uses a copy of the rewritten file, which keeps the original
+ *     file name, so Kotlin scripts are still compiled as Kotlin. A diff is applied to a copy of the original file.</li>
+ *     <li>the generated catalog is the {@code libs} catalog, and any existing {@literal gradle/libs.versions.toml} is
+ *     renamed out of its way</li>
+ * </ul>
+ * The init script also sends the nested {@link ResolvedDependenciesTask}s' output to a file of its own.
+ */
+public abstract class ConvertedBuildTask extends PreparedFilesTask {
+    public static final String BUILD_NAME = "tomlConverterVerification";
+    public static final String INIT_SCRIPT = "init.gradle";
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @InputFile
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public RegularFileProperty getCatalog() {
+        return catalog;
+    }
+
+    private final RegularFileProperty catalog = getProject().getObjects().fileProperty();
+
+    @OutputDirectory
+    public DirectoryProperty getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    private final DirectoryProperty outputDirectory = getProject().getObjects().directoryProperty()
+            .fileValue(outputDirectoryIn(getProject()));
+
+    @Internal
+    public Provider<RegularFile> getInitScript() {
+        return outputDirectory.file(INIT_SCRIPT);
+    }
+
+    private final String rootDir = getProject().getRootDir().getAbsolutePath();
+
+    @TaskAction
+    public void action() throws IOException {
+        final var dir = outputDirectory.get().getAsFile().toPath();
+        getFileSystemOperations().delete(spec -> spec.delete(dir.toFile()));
+        if (!dir.toFile().mkdirs()) {
+            throw new GradleException("Unable to create " + dir);
+        }
+
+        final var buildFiles = new ArrayList<String>();
+        for (final var copy : getCopies().get().entrySet()) {
+            final var source = Path.of(copy.getKey());
+            if (!Files.exists(source)) {
+                continue;
+            }
+            final var target = Path.of(copy.getValue().getPath());
+            final var staged = dir.resolve("files").resolve(Path.of(rootDir).relativize(target));
+            Files.createDirectories(staged.getParent());
+            if (copy.getValue().getMode() == OutputMode.PATCH) {
+                Files.write(staged, UnifiedDiff.apply(Files.readAllLines(target), Files.readAllLines(source), false));
+            } else {
+                Files.copy(source, staged, StandardCopyOption.REPLACE_EXISTING);
+            }
+            buildFiles.add("    " + groovyString(target.toString()) + ": " + groovyString(staged.toString()) + ",");
+        }
+
+        final var script = new ArrayList<String>();
+        script.add("// written by " + getPath() + " to build the converted project");
+        script.add("def convertedBuildFiles = [");
+        script.addAll(buildFiles);
+        script.add("]");
+        script.add("");
+        script.add("settingsEvaluated { settings ->");
+        script.add("    def descriptors = [settings.rootProject]");
+        script.add("    for (def i = 0; i < descriptors.size(); i++) {");
+        script.add("        descriptors.addAll(descriptors[i].children)");
+        script.add("    }");
+        script.add("    for (def descriptor : descriptors) {");
+        script.add("        def converted = convertedBuildFiles[descriptor.buildFile.absolutePath]");
+        script.add("        if (converted != null) {");
+        script.add("            descriptor.buildFileName = descriptor.projectDir.toPath().relativize(new File(converted).toPath()).toString()");
+        script.add("        }");
+        script.add("    }");
+        script.add("    settings.dependencyResolutionManagement.defaultLibrariesExtensionName = 'tomlConverterOriginalLibs'");
+        script.add("    settings.dependencyResolutionManagement.versionCatalogs.create('libs') {");
+        script.add("        from(files(" + groovyString(catalog.get().getAsFile().getAbsolutePath()) + "))");
+        script.add("    }");
+        script.add("}");
+        script.add("");
+        script.add("gradle.allprojects { project ->");
+        script.add("    project.tasks.configureEach { task ->");
+        script.add("        if (task.name == " + groovyString(ResolvedDependenciesTask.NAME) + ") {");
+        script.add("            task.outputFile.set(project.layout.buildDirectory.file("
+                + groovyString(BUILD_SUBDIR + "/" + ResolvedDependenciesTask.CONVERTED_RESOLVED_FILE) + "))");
+        script.add("        }");
+        script.add("    }");
+        script.add("}");
+        Files.write(getInitScript().get().getAsFile().toPath(), script);
+    }
+
+    private static String groovyString(final String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private static File outputDirectoryIn(final Project project) {
+        return project.getBuildDir().toPath()
+                .resolve(BUILD_SUBDIR)
+                .resolve("verification")
+                .toFile();
+    }
+
+    /**
+     * The nested build needs the init script's path when it's configured, so this works it out without the task.
+     * @return the init script the task writes for {@code project}
+     */
+    public static File initScriptIn(final Project project) {
+        return new File(outputDirectoryIn(project), INIT_SCRIPT);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.Catalog;
+import com.github.jeffalder.tomlconverter.data.Dependency;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>This build service owns the dependencies extracted from every project and their deduplication,
+ * which the {@link Catalog} is built from.
+ *
+ * <p>Each {@link DependencyExtractionTask} offers its result under its own output file, so
+ * extraction tasks in parallel projects each insert one entry and never contend with one another.
+ * Extraction tasks that were UP-TO-DATE or FROM-CACHE don't run and don't offer anything,
+ * so {@link #collect(Iterable)} reads those from their output files instead.
+ */
+public abstract class DependencyCollectorService implements BuildService<BuildServiceParameters.None> {
+    public static final String NAME = "tomlConverterDependencyCollector";
+
+    private final Map<String, List<Dependency>> dependenciesByFile = new ConcurrentHashMap<>();
+
+    public void offer(final File dependencyFile, final Collection<Dependency> dependencies) {
+        dependenciesByFile.put(dependencyFile.getAbsolutePath(), List.copyOf(dependencies));
+    }
+
+    /**
+     * @param dependencyFiles the output files of every extraction task
+     * @return the unique dependencies across all of them
+     */
+    public Set<Dependency> collect(final Iterable<File> dependencyFiles) {
+        return StreamSupport.stream(dependencyFiles.spliterator(), true)
+                .flatMap(file -> dependenciesByFile.computeIfAbsent(file.getAbsolutePath(), ignored -> read(file)).stream())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static List<Dependency> read(final File file) {
+        try {
+            return ObjectFiles.read(file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
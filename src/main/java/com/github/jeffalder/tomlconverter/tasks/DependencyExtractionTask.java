@@ -2,63 +2,203 @@ package com.github.jeffalder.tomlconverter.tasks;
 
 import com.github.jeffalder.tomlconverter.data.Dependency;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.DependencyConstraint;
-import org.gradle.api.artifacts.DependencyConstraintSet;
-import org.gradle.api.artifacts.DependencySet;
 import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
-import static java.util.function.Predicate.not;
+import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
 
 /**
- * <p>This task, run on each subproject, extracts all the top-line dependencies
- * from the primary Java configurations: {@code api}, {@code implementation},
+ * <p>This task, run on each subproject, extracts all the top-line dependencies and constraints
+ * from the configurations chosen in the {@link com.github.jeffalder.tomlconverter.TomlConverterExtension}.
+ * By default, those are the primary Java configurations: {@code api}, {@code implementation},
  * {@code runtimeOnly}, {@code testImplementation}, and {@code testRuntimeOnly}.
  *
  * <p>Dependencies and constraints in any other configuration will <i>not</i> be discovered.
+ *
+ * <p>The extracted dependencies are the task input, and the task writes them, sorted, to
+ * build/tomlConverter/dependencies.ser for the {@link TomlWriterTask}. It also offers them
+ * to the {@link DependencyCollectorService} so they don't have to be read back in the same build.
+ * The task is up-to-date when its dependencies haven't changed, but it isn't cacheable: writing the file
+ * costs less than storing and loading it from the build cache.
  */
 public class DependencyExtractionTask extends DefaultTask {
-    private Consumer<Dependency> dependencyConsumer;
+    // Gradle has no public type for a project constraint, so the best way to identify one is its getProjectDependency method.
+    // There are only a couple of concrete constraint classes, so each is only looked at once, however many constraints there are.
+    private static final ClassValue<Boolean> PROJECT_CONSTRAINT_TYPES = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            try {
+                type.getMethod("getProjectDependency");
+                return true;
+            } catch (final NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    // extraction happens when the input is fingerprinted, before the action, so it's timed where it happens
+    private final AtomicLong extractionNanos = new AtomicLong();
+
+    /**
+     * @return the names or wildcard patterns of the configurations to scan. They're only internal because
+     * the dependencies they pick are the input.
+     */
+    @Internal
+    public ListProperty<String> getIncludedConfigurations() {
+        return includedConfigurations;
+    }
+
+    private final ListProperty<String> includedConfigurations = getProject().getObjects().listProperty(String.class);
+
+    @Internal
+    public ListProperty<String> getExcludedConfigurations() {
+        return excludedConfigurations;
+    }
+
+    private final ListProperty<String> excludedConfigurations = getProject().getObjects().listProperty(String.class);
+
+    @Input
+    public SetProperty<Dependency> getDependencies() {
+        return dependencies;
+    }
+
+    private final SetProperty<Dependency> dependencies = getProject().getObjects().setProperty(Dependency.class)
+            .value(extractedFrom(getProject(), includedConfigurations, excludedConfigurations, extractionNanos));
+
+    @OutputFile
+    public RegularFileProperty getOutputFile() {
+        return outputFile;
+    }
+
+    RegularFileProperty outputFile = getProject().getObjects().fileProperty()
+            .fileValue(getProject().getBuildDir().toPath()
+                    .resolve(BUILD_SUBDIR)
+                    .resolve("dependencies.ser")
+                    .toFile());
+
+    @Internal
+    public Property<DependencyCollectorService> getDependencyCollectorService() {
+        return dependencyCollectorService;
+    }
+
+    private final Property<DependencyCollectorService> dependencyCollectorService = getProject().getObjects()
+            .property(DependencyCollectorService.class);
+
+    @Internal
+    public Property<ConversionMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    private final Property<ConversionMetricsService> metricsService = getProject().getObjects()
+            .property(ConversionMetricsService.class);
 
     @TaskAction
-    public void action() {
-        for (final var configName : List.of("api", "implementation", "runtimeOnly", "testImplementation", "testRuntimeOnly")) {
-            final var config = getProject().getConfigurations().findByName(configName);
-            if (config == null) {
-                continue;
-            }
+    public void action() throws IOException {
+        final var start = System.nanoTime();
+        final var sorted = new ArrayList<>(new TreeSet<>(dependencies.get()));
+        ObjectFiles.write(outputFile.get().getAsFile(), sorted);
+        dependencyCollectorService.get().offer(outputFile.get().getAsFile(), sorted);
+
+        metricsService.get().recordNanos(getPath(), "extract", extractionNanos.get());
+        metricsService.get().record(getPath(), "write", start);
+    }
 
-            consumeDependencies(config.getDependencies());
-            consumeConstraints(config.getDependencyConstraints());
+    // only the configuration container is captured, so the provider never touches the project at execution time
+    private static Provider<Set<Dependency>> extractedFrom(final Project project, final Provider<List<String>> included,
+                                                          final Provider<List<String>> excluded, final AtomicLong extractionNanos) {
+        final var configurations = project.getConfigurations();
+        return project.provider(() -> {
+            final var start = System.nanoTime();
+            final var extracted = extract(configurations, included.get(), excluded.get());
+            extractionNanos.set(System.nanoTime() - start);
+            return extracted;
+        });
+    }
+
+    /**
+     * Reads the dependencies and constraints on this thread, since it's the only one allowed to read the project's model.
+     */
+    private static Set<Dependency> extract(final ConfigurationContainer configurations, final List<String> included, final List<String> excluded) {
+        final var result = new HashSet<Dependency>();
+        for (final var configName : configurationNames(configurations, included, excluded)) {
+            final var config = configurations.getByName(configName);
+            for (final var dependency : config.getDependencies()) {
+                if (dependency instanceof ExternalModuleDependency) {
+                    result.add(Dependency.from((ExternalModuleDependency) dependency));
+                }
+            }
+            for (final var constraint : config.getDependencyConstraints()) {
+                if (!isProjectDep(constraint)) {
+                    result.add(Dependency.from(constraint));
+                }
+            }
         }
+        return result;
     }
 
-    private void consumeDependencies(final DependencySet configDependencies) {
-        configDependencies.stream()
-                .filter(dep -> dep instanceof ExternalModuleDependency)
-                .map(dep -> Dependency.from((ExternalModuleDependency)dep))
-                .forEach(dependencyConsumer);
+    /**
+     * @return the names of the existing configurations that match an included name or pattern, and no excluded one
+     */
+    static Set<String> configurationNames(final ConfigurationContainer configurations, final List<String> included, final List<String> excluded) {
+        final var isExcluded = matcher(excluded);
+        final var result = new TreeSet<String>();
+        for (final var name : included) {
+            if (isPattern(name)) {
+                final var isIncluded = matcher(List.of(name));
+                configurations.getNames().stream().filter(isIncluded).forEach(result::add);
+            } else if (configurations.getNames().contains(name)) {
+                result.add(name);
+            }
+        }
+        result.removeIf(isExcluded);
+        return result;
     }
 
-    private void consumeConstraints(final DependencyConstraintSet dependencyConstraints) {
-        dependencyConstraints.stream()
-                .filter(not(this::isProjectDep))
-                .map(Dependency::from)
-                .forEach(dependencyConsumer);
+    private static boolean isPattern(final String name) {
+        return name.indexOf('*') >= 0 || name.indexOf('?') >= 0;
     }
 
-    // Yup, this is the best way I could find to identify it since the concrete type is internal
-    private boolean isProjectDep(final DependencyConstraint foo) {
-        return Arrays.stream(foo.getClass().getMethods())
-                .anyMatch(m -> m.getName().equals("getProjectDependency"));
+    /**
+     * @return a predicate that matches names against any of the patterns, where {@code *} is any number of characters
+     * and {@code ?} is one
+     */
+    private static Predicate<String> matcher(final List<String> patterns) {
+        if (patterns.isEmpty()) {
+            return name -> false;
+        }
+
+        final var regex = patterns.stream()
+                .map(pattern -> Arrays.stream(pattern.split("(?=[*?])|(?<=[*?])"))
+                        .map(part -> part.equals("*") ? ".*" : part.equals("?") ? "." : Pattern.quote(part))
+                        .collect(Collectors.joining()))
+                .collect(Collectors.joining("|"));
+        return Pattern.compile(regex).asMatchPredicate();
     }
 
-    public DependencyExtractionTask setDependencyConsumer(final Consumer<Dependency> dependencyConsumer) {
-        this.dependencyConsumer = dependencyConsumer;
-        return this;
+    private static boolean isProjectDep(final DependencyConstraint constraint) {
+        return PROJECT_CONSTRAINT_TYPES.get(constraint.getClass());
     }
 }
@@ -0,0 +1,41 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import org.gradle.api.GradleException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+
+/**
+ * The tasks hand their intermediate results to each other through files, so that Gradle can
+ * fingerprint them as task inputs and outputs. This reads and writes those files with plain Java serialization.
+ */
+final class ObjectFiles {
+    private ObjectFiles() {
+    }
+
+    static void write(final File file, final Serializable value) throws IOException {
+        final var dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new GradleException("Unable to create " + dir);
+        }
+
+        try (final var output = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            output.writeObject(value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T read(final File file) throws IOException {
+        try (final var input = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            return (T) input.readObject();
+        } catch (final ClassNotFoundException e) {
+            throw new GradleException("Unable to read " + file, e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.CopyTarget;
+import com.github.jeffalder.tomlconverter.FilePreparation;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.util.Map;
+
+/**
+ * The tasks that do something with the output files of the {@link FilePreparation} tasks and the {@link ScriptRewriterTask}:
+ * {@link ScriptWriterTask}, {@link ApplyConversionTask} and {@link ConvertedBuildTask}. Only the paths and output modes
+ * of the prepared files are kept, not the tasks themselves, so these tasks can be stored in the configuration cache,
+ * and the preparing tasks aren't realized until these need their inputs.
+ */
+public abstract class PreparedFilesTask extends DefaultTask {
+    /**
+     * @return the absolute path of each prepared file, mapped to the file it should replace and the mode it was written in
+     */
+    @Input
+    public MapProperty<String, CopyTarget> getCopies() {
+        return copies;
+    }
+
+    private final MapProperty<String, CopyTarget> copies = getProject().getObjects().mapProperty(String.class, CopyTarget.class);
+
+    /**
+     * @return the prepared files themselves, since only the ones that exist are used
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public ConfigurableFileCollection getPreparedFiles() {
+        return preparedFiles;
+    }
+
+    private final ConfigurableFileCollection preparedFiles = getProject().getObjects().fileCollection();
+
+    /**
+     * Adds the copy for a {@link FilePreparation}.
+     */
+    public PreparedFilesTask add(final Provider<? extends FilePreparation> filePreparation) {
+        preparedFiles.from(filePreparation.flatMap(FilePreparation::getOutputFile));
+        copies.putAll(filePreparation.flatMap(filePrep -> {
+            final var targetFile = filePrep.getTargetFile();
+            return filePrep.getOutputFile().zip(filePrep.getOutputMode(),
+                    (output, mode) -> Map.of(output.getAsFile().getAbsolutePath(), new CopyTarget(targetFile, mode)));
+        }));
+        return this;
+    }
+
+    /**
+     * Adds the copies for the scripts rewritten by a {@link ScriptRewriterTask}.
+     */
+    public PreparedFilesTask addScripts(final Provider<ScriptRewriterTask> scriptRewriter) {
+        preparedFiles.from(scriptRewriter.flatMap(ScriptRewriterTask::getOutputDirectory));
+        copies.putAll(scriptRewriter.flatMap(ScriptRewriterTask::getCopies));
+        return this;
+    }
+}
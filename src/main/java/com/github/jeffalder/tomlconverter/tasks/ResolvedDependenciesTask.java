@@ -0,0 +1,199 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
+
+/**
+ * <p>This task, run on each subproject, resolves every configuration that extends one of the configurations
+ * the {@link DependencyExtractionTask} scans, like {@code compileClasspath} and {@code runtimeClasspath} for {@code implementation},
+ * and writes a fingerprint of each one to build/tomlConverter/resolved.txt.
+ *
+ * <p>A fingerprint is the sorted list of the components in the graph, the dependencies that couldn't be resolved,
+ * and the file names of the external artifacts, which is where classifiers show up. Resolution is lenient,
+ * so a missing module is part of the fingerprint rather than a failure.
+ *
+ * <p>The {@link VerifyConversionTask} compares these against the same task run in a nested build of the converted files.
+ * The configurations are resolved by the task action, every time the task runs, and never to decide whether it should.
+ */
+public class ResolvedDependenciesTask extends DefaultTask {
+    public static final String NAME = "resolveDeps";
+    public static final String RESOLVED_FILE = "resolved.txt";
+    public static final String CONVERTED_RESOLVED_FILE = "resolved-converted.txt";
+
+    @Internal
+    public ListProperty<String> getIncludedConfigurations() {
+        return includedConfigurations;
+    }
+
+    private final ListProperty<String> includedConfigurations = getProject().getObjects().listProperty(String.class);
+
+    @Internal
+    public ListProperty<String> getExcludedConfigurations() {
+        return excludedConfigurations;
+    }
+
+    private final ListProperty<String> excludedConfigurations = getProject().getObjects().listProperty(String.class);
+
+    /**
+     * @return the names of the configurations to resolve
+     */
+    @Input
+    public ListProperty<String> getResolvedConfigurations() {
+        return resolvedConfigurations;
+    }
+
+    private final ListProperty<String> resolvedConfigurations = getProject().getObjects().listProperty(String.class)
+            .value(resolvableFrom(getProject(), includedConfigurations, excludedConfigurations));
+
+    /**
+     * @return the fingerprint of each resolved configuration, by name. Nothing is resolved until the task action asks for it.
+     */
+    @Internal
+    @SuppressWarnings("unchecked")
+    public MapProperty<String, List<String>> getFingerprints() {
+        return fingerprints;
+    }
+
+    @SuppressWarnings("unchecked")
+    private final MapProperty<String, List<String>> fingerprints = getProject().getObjects()
+            .mapProperty(String.class, (Class<List<String>>) (Class<?>) List.class)
+            .value(fingerprintsOf(getProject(), resolvedConfigurations));
+
+    @OutputFile
+    public RegularFileProperty getOutputFile() {
+        return outputFile;
+    }
+
+    private final RegularFileProperty outputFile = getProject().getObjects().fileProperty()
+            .fileValue(getProject().getBuildDir().toPath()
+                    .resolve(BUILD_SUBDIR)
+                    .resolve(RESOLVED_FILE)
+                    .toFile());
+
+    public ResolvedDependenciesTask() {
+        doNotTrackState("The dependencies are resolved every time, to compare them with the converted build's");
+    }
+
+    @TaskAction
+    public void action() throws IOException {
+        final var dir = outputFile.get().getAsFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new GradleException("Unable to create " + dir);
+        }
+
+        final var lines = new ArrayList<String>();
+        new TreeMap<>(fingerprints.get()).forEach((configuration, fingerprint) -> {
+            for (final var entry : fingerprint) {
+                lines.add(configuration + " " + entry);
+            }
+        });
+        Files.write(outputFile.get().getAsFile().toPath(), lines);
+    }
+
+    // only the configuration container is captured, so the provider never touches the project at execution time
+    private static Provider<List<String>> resolvableFrom(final Project project, final Provider<List<String>> included,
+                                                         final Provider<List<String>> excluded) {
+        final var configurations = project.getConfigurations();
+        return project.provider(() -> {
+            final var scanned = DependencyExtractionTask.configurationNames(configurations, included.get(), excluded.get());
+            final var result = new ArrayList<String>();
+            for (final var config : configurations) {
+                if (config.isCanBeResolved() && config.getHierarchy().stream().anyMatch(parent -> scanned.contains(parent.getName()))) {
+                    result.add(config.getName());
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Combines the lazy resolution results of each configuration, so Gradle resolves them when the task action reads them,
+     * on the thread working on the project, rather than while the task's inputs are fingerprinted.
+     */
+    private static Provider<Map<String, List<String>>> fingerprintsOf(final Project project, final Provider<List<String>> names) {
+        final var configurations = project.getConfigurations();
+        final var providers = project.getProviders();
+        return names.flatMap(resolved -> {
+            Provider<Map<String, List<String>>> result = providers.provider(TreeMap::new);
+            for (final var name : resolved) {
+                final var incoming = configurations.getByName(name).getIncoming();
+                final var artifacts = incoming.artifactView(view -> {
+                    view.lenient(true);
+                    view.componentFilter(id -> id instanceof ModuleComponentIdentifier);
+                }).getArtifacts().getResolvedArtifacts();
+                result = result.zip(incoming.getResolutionResult().getRootComponent().zip(artifacts, ResolvedDependenciesTask::fingerprint),
+                        (map, fingerprint) -> {
+                            map.put(name, fingerprint);
+                            return map;
+                        });
+            }
+            return result;
+        });
+    }
+
+    private static List<String> fingerprint(final ResolvedComponentResult root, final Set<ResolvedArtifactResult> artifacts) {
+        final var entries = new TreeSet<String>();
+        final var seen = new HashSet<ComponentIdentifier>();
+        seen.add(root.getId());
+        final var queue = new ArrayDeque<ResolvedComponentResult>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            for (final var dependency : queue.poll().getDependencies()) {
+                if (dependency instanceof UnresolvedDependencyResult) {
+                    entries.add("unresolved " + dependency.getRequested().getDisplayName());
+                } else if (dependency instanceof ResolvedDependencyResult) {
+                    final var selected = ((ResolvedDependencyResult) dependency).getSelected();
+                    if (seen.add(selected.getId())) {
+                        entries.add(describe(selected.getId()));
+                        queue.add(selected);
+                    }
+                }
+            }
+        }
+
+        for (final var artifact : artifacts) {
+            entries.add("artifact " + artifact.getFile().getName());
+        }
+        return List.copyOf(entries);
+    }
+
+    private static String describe(final ComponentIdentifier id) {
+        if (id instanceof ModuleComponentIdentifier) {
+            final var module = (ModuleComponentIdentifier) id;
+            return module.getGroup() + ":" + module.getModule() + ":" + module.getVersion();
+        }
+        if (id instanceof ProjectComponentIdentifier) {
+            return "project " + ((ProjectComponentIdentifier) id).getProjectPath();
+        }
+        return id.getDisplayName();
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.OutputMode;
+import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
+import com.github.jeffalder.tomlconverter.data.RewriteEngine;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * <p>The unit of work submitted by {@link BuildGradleRewriterTask}: rewrite one build file with
+ * an engine for the replacers of the dependencies its projects declared.
+ *
+ * <p>Statements are rewritten as they are read, so memory use doesn't grow with the size of the file.
+ * If no line changed, the output file is deleted rather than left as a copy of the original.
+ * In {@link OutputMode#PATCH} mode, the output file gets a diff rather than the whole file.
+ */
+public abstract class RewriteBuildFileAction implements WorkAction<RewriteBuildFileAction.Parameters> {
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getBuildFile();
+
+        ListProperty<BuildGradleReplacer> getReplacers();
+
+        RegularFileProperty getOutputFile();
+
+        /**
+         * @return the path of the build file in the headers of a diff
+         */
+        Property<String> getDiffPath();
+
+        Property<OutputMode> getOutputMode();
+
+        Property<ConversionMetricsService> getMetricsService();
+
+        Property<String> getTaskPath();
+    }
+
+    @Override
+    public void execute() {
+        final var start = System.nanoTime();
+        final var parameters = getParameters();
+        final var outputFile = parameters.getOutputFile().get().getAsFile();
+        final var dir = outputFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new GradleException("Unable to create " + dir);
+        }
+
+        final var engine = new RewriteEngine(parameters.getReplacers().get());
+
+        try {
+            rewrite(engine, parameters.getBuildFile().get().getAsFile(), outputFile, parameters.getDiffPath().get(),
+                    parameters.getOutputMode().get());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final var metrics = parameters.getMetricsService().get();
+        metrics.recordRewrite(parameters.getTaskPath().get(), engine);
+        metrics.record(parameters.getTaskPath().get(), "rewrite", start);
+    }
+
+    private static void rewrite(final RewriteEngine engine, final File buildFile, final File outputFile,
+                                final String diffPath, final OutputMode mode) throws IOException {
+        final boolean changed;
+        try (
+                final var reader = Files.newBufferedReader(buildFile.toPath());
+                final var writer = Files.newBufferedWriter(outputFile.toPath())
+        ) {
+            changed = mode == OutputMode.PATCH
+                    ? engine.diff(reader, diffPath, writer)
+                    : engine.rewrite(reader, writer);
+        }
+
+        if (!changed) {
+            Files.delete(outputFile.toPath());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
+import com.github.jeffalder.tomlconverter.data.Dependency;
+import com.github.jeffalder.tomlconverter.data.RewriteEngine;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * <p>This build service reads a replacers file once per build rather than once per project,
+ * and keeps an immutable copy of the list that any number of rewrite workers can share.
+ *
+ * <p>Each rewriter only gets the replacers its build file could use: those for dependencies declared in
+ * the project or one of its subprojects. In a wide build, most projects use a few dozen out of thousands
+ * of libraries, so their {@link RewriteEngine}s are tiny.
+ */
+public abstract class RewriteEngineService implements BuildService<BuildServiceParameters.None> {
+    public static final String NAME = "tomlConverterRewriteEngine";
+
+    private final Map<String, List<BuildGradleReplacer>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @param replacersFile the replacers written by {@link TomlWriterTask}
+     * @param usedDependencies the dependencies declared by the projects a build file can configure
+     */
+    public List<BuildGradleReplacer> replacersFor(final File replacersFile, final Set<Dependency> usedDependencies) {
+        final var usageKeys = usedDependencies.stream()
+                .map(Dependency::getUsageKey)
+                .collect(Collectors.toUnmodifiableSet());
+
+        return snapshot(replacersFile).stream()
+                .filter(replacer -> usageKeys.contains(replacer.getUsageKey()))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private List<BuildGradleReplacer> snapshot(final File replacersFile) {
+        // the modification time is part of the key in case writeToml runs again in the same daemon
+        final var key = replacersFile.getAbsolutePath() + "@" + replacersFile.lastModified();
+        return snapshots.computeIfAbsent(key, ignored -> load(replacersFile));
+    }
+
+    private static List<BuildGradleReplacer> load(final File replacersFile) {
+        try {
+            return List.copyOf(ObjectFiles.<List<BuildGradleReplacer>>read(replacersFile));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
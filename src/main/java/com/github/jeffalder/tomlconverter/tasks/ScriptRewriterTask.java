@@ -0,0 +1,323 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import com.github.jeffalder.tomlconverter.CopyTarget;
+import com.github.jeffalder.tomlconverter.OutputMode;
+import com.github.jeffalder.tomlconverter.data.AppliedScripts;
+import com.github.jeffalder.tomlconverter.data.BuildGradleReplacer;
+import com.github.jeffalder.tomlconverter.data.RewriteEngine;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
+
+/**
+ * <p>This task, run on the root project, rewrites the scripts that declare dependencies outside of the project build files,
+ * with the same {@link RewriteEngine} the {@link BuildGradleRewriterTask}s use:
+ * <ul>
+ *     <li>script plugins applied with {@code apply from:}, found by {@link #discover(Project)}</li>
+ *     <li>precompiled script plugins, like convention plugins, in {@code buildSrc} and in included builds</li>
+ * </ul>
+ * A shared script can be applied to any project, so it's rewritten with the replacers for every library in the catalog.
+ * Kotlin scripts like these don't get the type-safe {@code libs} accessor, so in them, libraries are looked up
+ * in the catalog by key instead.
+ *
+ * <p>Each script is rewritten by its own {@link RewriteBuildFileAction} on the worker pool, to
+ * build/tomlConverter/scripts/ followed by the script's path in the root project. Scripts outside of the root project
+ * directory aren't rewritten.
+ */
+public abstract class ScriptRewriterTask extends DefaultTask {
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public ConfigurableFileCollection getScripts() {
+        return scripts;
+    }
+
+    private final ConfigurableFileCollection scripts = getProject().getObjects().fileCollection();
+
+    @Input
+    public Property<OutputMode> getOutputMode() {
+        return outputMode;
+    }
+
+    private final Property<OutputMode> outputMode = getProject().getObjects().property(OutputMode.class)
+            .convention(OutputMode.FILES);
+
+    @OutputDirectory
+    public DirectoryProperty getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    private final DirectoryProperty outputDirectory = getProject().getObjects().directoryProperty()
+            .fileValue(getProject().getBuildDir().toPath()
+                    .resolve(BUILD_SUBDIR)
+                    .resolve("scripts")
+                    .toFile());
+
+    /**
+     * @return the list of {@link BuildGradleReplacer}s written by the {@link TomlWriterTask}
+     */
+    @Internal
+    public RegularFileProperty getReplacersFile() {
+        return replacersFile;
+    }
+
+    private final RegularFileProperty replacersFile = getProject().getObjects().fileProperty();
+
+    /**
+     * @return the outputs of every {@link DependencyExtractionTask}
+     */
+    @Internal
+    public ConfigurableFileCollection getDependencyFiles() {
+        return dependencyFiles;
+    }
+
+    private final ConfigurableFileCollection dependencyFiles = getProject().getObjects().fileCollection();
+
+    @Input
+    public Provider<List<BuildGradleReplacer>> getReplacers() {
+        return replacersFile.map(file -> rewriteEngineService.get()
+                .replacersFor(file.getAsFile(), dependencyCollectorService.get().collect(dependencyFiles)));
+    }
+
+    @Internal
+    public Property<DependencyCollectorService> getDependencyCollectorService() {
+        return dependencyCollectorService;
+    }
+
+    private final Property<DependencyCollectorService> dependencyCollectorService = getProject().getObjects()
+            .property(DependencyCollectorService.class);
+
+    @Internal
+    public Property<RewriteEngineService> getRewriteEngineService() {
+        return rewriteEngineService;
+    }
+
+    private final Property<RewriteEngineService> rewriteEngineService = getProject().getObjects().property(RewriteEngineService.class);
+
+    @Internal
+    public Property<ConversionMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    private final Property<ConversionMetricsService> metricsService = getProject().getObjects()
+            .property(ConversionMetricsService.class);
+
+    private final String rootDir = getProject().getRootDir().getAbsolutePath();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    /**
+     * @return the absolute path of each rewritten script, whether or not it's written, mapped to the script it replaces
+     */
+    @Internal
+    public Provider<Map<String, CopyTarget>> getCopies() {
+        final var files = scripts;
+        final var root = Path.of(rootDir);
+        return outputDirectory.zip(outputMode, (dir, mode) -> {
+            final var result = new TreeMap<String, CopyTarget>();
+            for (final var script : files.getFiles()) {
+                final var output = dir.getAsFile().toPath().resolve(root.relativize(script.toPath()) + mode.getExtension());
+                result.put(output.toString(), new CopyTarget(script.getAbsolutePath(), mode));
+            }
+            return result;
+        });
+    }
+
+    @TaskAction
+    public void action() {
+        final var dir = outputDirectory.get().getAsFile();
+        getFileSystemOperations().delete(spec -> spec.delete(dir));
+        if (!dir.mkdirs()) {
+            throw new GradleException("Unable to create " + dir);
+        }
+
+        final var replacers = getReplacers().get();
+        final var lookups = replacers.stream()
+                .map(BuildGradleReplacer::withCatalogLookup)
+                .collect(Collectors.toUnmodifiableList());
+
+        for (final var copy : getCopies().get().entrySet()) {
+            final var script = new File(copy.getValue().getPath());
+            final var diffPath = Path.of(rootDir).relativize(script.toPath()).toString().replace('\\', '/');
+            getWorkerExecutor().noIsolation().submit(RewriteBuildFileAction.class, parameters -> {
+                parameters.getBuildFile().set(script);
+                parameters.getReplacers().set(script.getName().endsWith(".kts") ? lookups : replacers);
+                parameters.getOutputFile().set(new File(copy.getKey()));
+                parameters.getDiffPath().set(diffPath);
+                parameters.getOutputMode().set(copy.getValue().getMode());
+                parameters.getMetricsService().set(metricsService);
+                parameters.getTaskPath().set(getPath() + " " + diffPath);
+            });
+        }
+    }
+
+    /**
+     * Finds the scripts in a build, other than its project build files, that can declare dependencies:
+     * the scripts applied by each project's build file, and the scripts those apply, and the precompiled script plugins in
+     * {@code buildSrc} and included builds, like src/main/groovy/my-conventions.gradle.
+     *
+     * <p>The files are read by a {@link Discovery} value source rather than here, so the configuration cache runs it again
+     * at the start of each build and is only reused while it finds the same scripts.
+     * @param root the root project
+     * @return the scripts in the root project directory, sorted
+     */
+    public static Provider<List<File>> discover(final Project root) {
+        return root.getProviders().of(Discovery.class, spec -> {
+            final var parameters = spec.getParameters();
+            parameters.getRootDir().set(root.getRootDir().getAbsolutePath());
+            for (final var project : root.getAllprojects()) {
+                parameters.getBuildFiles().put(project.getBuildFile().getAbsolutePath(), project.getProjectDir().getAbsolutePath());
+            }
+            parameters.getPluginBuilds().add(new File(root.getRootDir(), "buildSrc").getAbsolutePath());
+            for (final var includedBuild : root.getGradle().getIncludedBuilds()) {
+                parameters.getPluginBuilds().add(includedBuild.getProjectDir().getAbsolutePath());
+            }
+        });
+    }
+
+    /**
+     * Reads the build files, and walks the plugin builds, for {@link #discover(Project)}. The build files of each project
+     * are read in parallel.
+     */
+    public abstract static class Discovery implements ValueSource<List<File>, Discovery.Parameters> {
+        public interface Parameters extends ValueSourceParameters {
+            Property<String> getRootDir();
+
+            /**
+             * @return the absolute path of each project's build file, mapped to its project directory
+             */
+            MapProperty<String, String> getBuildFiles();
+
+            /**
+             * @return the directories of buildSrc and the included builds, which may not exist
+             */
+            ListProperty<String> getPluginBuilds();
+        }
+
+        @Override
+        public List<File> obtain() {
+            final var rootDir = Path.of(getParameters().getRootDir().get()).toAbsolutePath().normalize();
+            final var projectDirs = new TreeMap<Path, Path>();
+            getParameters().getBuildFiles().get().forEach((buildFile, projectDir) ->
+                    projectDirs.put(Path.of(buildFile).toAbsolutePath().normalize(), Path.of(projectDir).toAbsolutePath()));
+
+            final var found = ConcurrentHashMap.<Path>newKeySet();
+            projectDirs.entrySet().parallelStream().forEach(buildFile -> follow(buildFile.getKey(), buildFile.getValue(), rootDir, found));
+
+            getParameters().getPluginBuilds().get().parallelStream()
+                    .forEach(dir -> found.addAll(precompiledScripts(Path.of(dir).toAbsolutePath().normalize())));
+
+            return found.stream()
+                    .filter(script -> script.startsWith(rootDir) && !projectDirs.containsKey(script) && Files.isRegularFile(script))
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    /**
+     * Adds the scripts that {@code script} applies, and the ones they apply, to {@code found}.
+     */
+    private static void follow(final Path script, final Path projectDir, final Path rootDir, final Set<Path> found) {
+        if (!Files.isRegularFile(script)) {
+            return;
+        }
+
+        final String text;
+        try {
+            text = Files.readString(script);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (final var applied : AppliedScripts.find(text, projectDir, rootDir)) {
+            if (found.add(applied)) {
+                follow(applied, projectDir, rootDir, found);
+            }
+        }
+    }
+
+    /**
+     * @return the .gradle and .gradle.kts files under the src/main/groovy and src/main/kotlin directories of a build,
+     * skipping build output and hidden directories
+     */
+    private static List<Path> precompiledScripts(final Path buildDir) {
+        if (!Files.isDirectory(buildDir)) {
+            return List.of();
+        }
+
+        final var result = new ArrayList<Path>();
+        try {
+            Files.walkFileTree(buildDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                    final var name = dir.getFileName().toString();
+                    final var skipped = !dir.equals(buildDir) && (name.equals("build") || name.startsWith("."));
+                    return skipped ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    final var name = file.getFileName().toString();
+                    if ((name.endsWith(".gradle") || name.endsWith(".gradle.kts")) && isPluginSource(buildDir.relativize(file))) {
+                        result.add(file.toAbsolutePath().normalize());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private static boolean isPluginSource(final Path path) {
+        for (var i = 0; i + 3 < path.getNameCount(); i++) {
+            final var language = path.getName(i + 2).toString();
+            if (path.getName(i).toString().equals("src") && path.getName(i + 1).toString().equals("main")
+                    && (language.equals("groovy") || language.equals("kotlin"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
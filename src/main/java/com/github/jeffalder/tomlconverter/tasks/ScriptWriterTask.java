@@ -1,26 +1,34 @@
 package com.github.jeffalder.tomlconverter.tasks;
 
 import com.github.jeffalder.tomlconverter.FilePreparation;
-import org.gradle.api.DefaultTask;
+import com.github.jeffalder.tomlconverter.OutputMode;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.List;
 
 import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
 
 /**
- * This task has a list of {@link FilePreparation} tasks that refer to
+ * This task is given {@link FilePreparation} tasks that refer to
  * a task output file, and the location where the output file should be copied to.
  * The output of this task is a UNIX shell script that copies all the task output files
- * to their expected target location.
+ * to their expected target location. Output files that were never written, because
+ * nothing in them needed to change, are left out.
+ *
+ * <p>Output files written in {@link OutputMode#PATCH} mode are diffs, which the script applies with {@code patch}.
+ * All of them are also put together in build/tomlConverter/conversion.patch, to review the whole conversion
+ * or apply it with {@code git apply}. The catalog isn't in it, since it's a whole new file.
  */
-public class ScriptWriterTask extends DefaultTask {
+public class ScriptWriterTask extends PreparedFilesTask {
     @OutputFile
     public RegularFileProperty getOutputFile() {
         return outputFile;
@@ -32,33 +40,68 @@ public class ScriptWriterTask extends DefaultTask {
                     .resolve("convert.sh")
                     .toFile());
 
-    private final List<FilePreparation> filePreparations = new ArrayList<>();
+    /**
+     * @return the diffs in the output files put together. It's only written if there are any.
+     */
+    @OutputFile
+    public RegularFileProperty getPatchFile() {
+        return patchFile;
+    }
+
+    private final RegularFileProperty patchFile = getProject().getObjects().fileProperty()
+            .fileValue(getProject().getBuildDir().toPath()
+                    .resolve(BUILD_SUBDIR)
+                    .resolve("conversion.patch")
+                    .toFile());
+
+    @Internal
+    public Property<ConversionMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    private final Property<ConversionMetricsService> metricsService = getProject().getObjects()
+            .property(ConversionMetricsService.class);
 
     @TaskAction
     public void action() throws IOException {
+        final var start = System.nanoTime();
         final var dir = outputFile.get().getAsFile().getParentFile();
         if (!dir.exists() && !dir.mkdirs()) {
             throw new GradleException("Unable to create " + dir);
         }
 
+        final var diffs = new ArrayList<String>();
         try (final var writer = Files.newBufferedWriter(outputFile.get().getAsFile().toPath())) {
             writer.write("#!/bin/sh");
             writer.newLine();
             writer.write("set -ex");
             writer.newLine();
             writer.newLine();
-            for (final var filePrep : filePreparations) {
-                writer.write(String.format("cp %s %s%n", filePrep.getOutputFile().get(), filePrep.getTargetFile()));
+            for (final var copy : getCopies().get().entrySet()) {
+                if (!new File(copy.getKey()).exists()) {
+                    continue;
+                }
+                final var target = copy.getValue();
+                if (target.getMode() == OutputMode.PATCH) {
+                    writer.write(String.format("patch %s %s", target.getPath(), copy.getKey()));
+                    diffs.addAll(Files.readAllLines(Path.of(copy.getKey())));
+                } else {
+                    writer.write(String.format("cp %s %s", copy.getKey(), target.getPath()));
+                }
+                writer.newLine();
             }
         }
 
+        final var patch = patchFile.get().getAsFile().toPath();
+        if (diffs.isEmpty()) {
+            Files.deleteIfExists(patch);
+        } else {
+            Files.write(patch, diffs);
+        }
+
         if (!outputFile.get().getAsFile().setExecutable(true)) {
             throw new GradleException("Unable to make script file executable: " + outputFile.get());
         }
-    }
-
-    public ScriptWriterTask add(final FilePreparation filePreparation) {
-        filePreparations.add(filePreparation);
-        return this;
+        metricsService.get().record(getPath(), "writeScript", start);
     }
 }
@@ -0,0 +1,127 @@
+package com.github.jeffalder.tomlconverter.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
+
+/**
+ * <p>This task checks that the converted build resolves exactly the same dependencies as the original one.
+ * It compares, for every project and configuration, the fingerprint written by the {@link ResolvedDependenciesTask}
+ * in this build with the one written by the same task in the nested build of the converted files,
+ * set up by the {@link ConvertedBuildTask}. Projects are compared in parallel.
+ *
+ * <p>Every difference is written to build/tomlConverter/verification.txt, and if there are any, the task fails.
+ * It has no outputs, so it runs every time.
+ */
+public class VerifyConversionTask extends DefaultTask {
+    /**
+     * @return the path of each project mapped to the absolute path of its {@link ResolvedDependenciesTask} output in this build.
+     * The output of the nested build is next to it.
+     */
+    @Input
+    public MapProperty<String, String> getResolvedFiles() {
+        return resolvedFiles;
+    }
+
+    private final MapProperty<String, String> resolvedFiles = getProject().getObjects().mapProperty(String.class, String.class);
+
+    @Internal
+    public RegularFileProperty getReportFile() {
+        return reportFile;
+    }
+
+    private final RegularFileProperty reportFile = getProject().getObjects().fileProperty()
+            .fileValue(getProject().getBuildDir().toPath()
+                    .resolve(BUILD_SUBDIR)
+                    .resolve("verification.txt")
+                    .toFile());
+
+    @Internal
+    public Property<ConversionMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    private final Property<ConversionMetricsService> metricsService = getProject().getObjects()
+            .property(ConversionMetricsService.class);
+
+    @TaskAction
+    public void action() throws IOException {
+        final var start = System.nanoTime();
+        final var differences = resolvedFiles.get().entrySet().parallelStream()
+                .flatMap(project -> compare(project.getKey(), Path.of(project.getValue())).stream())
+                .sorted()
+                .collect(Collectors.toList());
+
+        Files.write(reportFile.get().getAsFile().toPath(), differences);
+        metricsService.get().record(getPath(), "verify", start);
+
+        if (!differences.isEmpty()) {
+            throw new GradleException("The converted build resolves " + differences.size()
+                    + " configurations differently, see " + reportFile.get().getAsFile());
+        }
+        getLogger().lifecycle("The converted build resolves the same dependencies in all {} projects", resolvedFiles.get().size());
+    }
+
+    /**
+     * @return a line for each configuration of the project that resolved differently
+     */
+    private static List<String> compare(final String projectPath, final Path resolved) {
+        final var converted = resolved.resolveSibling(ResolvedDependenciesTask.CONVERTED_RESOLVED_FILE);
+        if (!Files.exists(converted)) {
+            throw new GradleException("The converted build didn't resolve project " + projectPath);
+        }
+
+        final var before = read(resolved);
+        final var after = read(converted);
+        final var configurations = new TreeSet<>(before.keySet());
+        configurations.addAll(after.keySet());
+
+        final var differences = new ArrayList<String>();
+        for (final var configuration : configurations) {
+            final var onlyBefore = new TreeSet<>(before.getOrDefault(configuration, Set.of()));
+            final var onlyAfter = new TreeSet<>(after.getOrDefault(configuration, Set.of()));
+            onlyBefore.removeAll(after.getOrDefault(configuration, Set.of()));
+            onlyAfter.removeAll(before.getOrDefault(configuration, Set.of()));
+            if (!onlyBefore.isEmpty() || !onlyAfter.isEmpty()) {
+                differences.add("project " + projectPath + ", configuration " + configuration
+                        + ": only before " + onlyBefore + ", only after " + onlyAfter);
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * @return the entries of each configuration in a {@link ResolvedDependenciesTask} output file
+     */
+    private static Map<String, Set<String>> read(final Path file) {
+        final var result = new TreeMap<String, Set<String>>();
+        try {
+            for (final var line : Files.readAllLines(file)) {
+                final var space = line.indexOf(' ');
+                result.computeIfAbsent(line.substring(0, space), ignored -> new TreeSet<>()).add(line.substring(space + 1));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.jeffalder.tomlconverter;
+
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Converts generated multi-project builds and compares configuration time, execution time and peak heap
+ * against {@code perf-baseline.properties}. A test fails when any of them is more than the margin over its baseline.
+ *
+ * <p>The numbers depend on the machine. Each run writes what it measured to {@code perf.resultsDir}, so the baseline
+ * can be refreshed from the machine that runs these tests.
+ */
+public class ConversionPerformanceTest {
+    private static final List<String> METRICS = List.of("configurationMillis", "executionMillis", "peakHeapMegabytes");
+
+    @TempDir
+    public File testProjectDir;
+
+    @Test
+    public void smallMonorepo() throws IOException {
+        convert("small", new MonorepoFixture(10, 100, 12));
+    }
+
+    @Test
+    public void largeMonorepo() throws IOException {
+        convert("large", new MonorepoFixture(150, 2000, 30));
+    }
+
+    private void convert(final String scenario, final MonorepoFixture fixture) throws IOException {
+        final var dir = testProjectDir.toPath();
+        fixture.writeTo(dir);
+        try (final var initScript = resource("measure.gradle")) {
+            Files.copy(initScript, dir.resolve("measure.gradle"));
+        }
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath();
+
+        // the first build starts the daemon and compiles the build scripts, none of which is the plugin's doing
+        runner.withArguments("writeConversionScript", "--init-script", "measure.gradle").build();
+        final var result = runner.withArguments("writeConversionScript", "--rerun-tasks", "--init-script", "measure.gradle").build();
+
+        assertEquals(SUCCESS, result.task(":writeConversionScript").getOutcome());
+        assertTrue(Files.exists(dir.resolve(Path.of("project4", "build", BUILD_SUBDIR, "build.gradle.kts.new"))));
+
+        final var measured = new Properties();
+        try (final var in = Files.newInputStream(dir.resolve("perf.properties"))) {
+            measured.load(in);
+        }
+        record(scenario, measured);
+
+        final var baseline = new Properties();
+        try (final var in = resource("perf-baseline.properties")) {
+            baseline.load(in);
+        }
+        final var margin = Double.parseDouble(System.getProperty("perf.margin", baseline.getProperty("margin")));
+
+        for (final var metric : METRICS) {
+            final var value = Long.parseLong(measured.getProperty(metric));
+            final var limit = Long.parseLong(baseline.getProperty(scenario + "." + metric)) * (1 + margin);
+            assertTrue(value <= limit, scenario + "." + metric + " was " + value + ", over the limit of " + (long) limit);
+        }
+    }
+
+    private static void record(final String scenario, final Properties measured) throws IOException {
+        final var resultsDir = System.getProperty("perf.resultsDir");
+        if (resultsDir == null) {
+            return;
+        }
+
+        final var results = Files.createDirectories(Path.of(resultsDir)).resolve(scenario + ".properties");
+        try (final var out = Files.newOutputStream(results)) {
+            measured.store(out, scenario);
+        }
+    }
+
+    private static InputStream resource(final String name) {
+        return ConversionPerformanceTest.class.getResourceAsStream(name);
+    }
+}
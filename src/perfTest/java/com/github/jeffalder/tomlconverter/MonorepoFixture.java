@@ -0,0 +1,106 @@
+package com.github.jeffalder.tomlconverter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Writes a multi-project build that applies the plugin at the root. Subprojects get a seeded, random selection of
+ * libraries, declared in every notation the plugin handles: plain, with a classifier, as a platform, and as constraints.
+ * Every fifth subproject uses the Kotlin DSL.
+ */
+public class MonorepoFixture {
+    private final int subprojects;
+    private final int libraries;
+    private final int librariesPerProject;
+
+    public MonorepoFixture(final int subprojects, final int libraries, final int librariesPerProject) {
+        this.subprojects = subprojects;
+        this.libraries = libraries;
+        this.librariesPerProject = librariesPerProject;
+    }
+
+    public void writeTo(final Path dir) throws IOException {
+        final var includes = new ArrayList<String>();
+        for (var i = 0; i < subprojects; i++) {
+            includes.add("'" + projectName(i) + "'");
+        }
+        Files.write(dir.resolve("settings.gradle"), List.of(
+                "rootProject.name = 'monorepo'",
+                "include " + String.join(", ", includes)
+        ));
+
+        Files.write(dir.resolve("build.gradle"), List.of(
+                "plugins {",
+                "  id('io.github.jeffalder.tomlconverter')",
+                "}"
+        ));
+
+        for (var i = 0; i < subprojects; i++) {
+            final var projectDir = Files.createDirectories(dir.resolve(projectName(i)));
+            final var kotlin = i % 5 == 4;
+            Files.write(projectDir.resolve(kotlin ? "build.gradle.kts" : "build.gradle"), buildFile(new Random(i), kotlin));
+        }
+    }
+
+    private List<String> buildFile(final Random random, final boolean kotlin) {
+        final var lines = new ArrayList<String>();
+        final var constraints = new ArrayList<String>();
+        lines.add("plugins {");
+        lines.add(kotlin ? "  `java-library`" : "  id 'java-library'");
+        lines.add("}");
+        lines.add("");
+        lines.add("dependencies {");
+
+        for (var j = 0; j < librariesPerProject; j++) {
+            final var coordinates = coordinates(random.nextInt(libraries));
+            switch (j % 6) {
+                case 0:
+                case 1:
+                    lines.add(declaration(kotlin, "implementation", quote(kotlin, coordinates)));
+                    break;
+                case 2:
+                    lines.add(declaration(kotlin, "testImplementation", quote(kotlin, coordinates)));
+                    break;
+                case 3:
+                    lines.add(declaration(kotlin, "testRuntimeOnly", quote(kotlin, coordinates + ":tests")));
+                    break;
+                case 4:
+                    lines.add(declaration(kotlin, "api", "platform(" + quote(kotlin, coordinates) + ")"));
+                    break;
+                default:
+                    constraints.add("  " + declaration(kotlin, "implementation", quote(kotlin, coordinates)));
+                    break;
+            }
+        }
+
+        if (!constraints.isEmpty()) {
+            lines.add("  constraints {");
+            lines.addAll(constraints);
+            lines.add("  }");
+        }
+        lines.add("}");
+        return lines;
+    }
+
+    private static String declaration(final boolean kotlin, final String configuration, final String notation) {
+        return kotlin
+                ? "  " + configuration + "(" + notation + ")"
+                : "  " + configuration + " " + notation;
+    }
+
+    private static String quote(final boolean kotlin, final String value) {
+        return kotlin ? "\"" + value + "\"" : "'" + value + "'";
+    }
+
+    private static String coordinates(final int library) {
+        return "org.example.group" + library / 10 + ":library-" + library + ":1." + library % 7 + ".0";
+    }
+
+    private static String projectName(final int index) {
+        return "project" + index;
+    }
+}
@@ -10,12 +10,21 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarOutputStream;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
 
 import static com.github.jeffalder.tomlconverter.TomlConverterPlugin.BUILD_SUBDIR;
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PluginTest {
@@ -32,6 +41,569 @@ public class PluginTest {
 
     @Test
     public void pluginTest() throws IOException {
+        writeBuildFiles();
+
+        final var result = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("writeConversionScript")
+                .build();
+
+        assertEquals(SUCCESS, result.task(":writeConversionScript").getOutcome());
+
+        final var tomlFile = testProjectDir.toPath()
+                .resolve(Path.of("build", BUILD_SUBDIR, "libs.versions.toml"));
+
+        assertTrue(tomlFile.toFile().exists());
+        final var tomlContents = Files.readString(tomlFile, StandardCharsets.UTF_8);
+
+        verifyTomlContents(tomlContents);
+        verifyBuildGradleContents(tomlContents);
+    }
+
+    @Test
+    public void metricsReportIsWritten() throws IOException {
+        writeBuildFiles();
+
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("writeConversionScript")
+                .build();
+
+        final var reportDir = testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR));
+        final var timings = Files.readAllLines(reportDir.resolve("timings.csv"));
+        assertEquals("task,phase,millis", timings.get(0));
+        for (final var phase : List.of(":extractDeps,extract,", ":writeToml,allocateKeys,", ":rewriteBuildGradle,rewrite,",
+                ":writeConversionScript,writeScript,")) {
+            assertTrue(timings.stream().anyMatch(line -> line.startsWith(phase)), phase);
+        }
+
+        final var replacers = Files.readAllLines(reportDir.resolve("replacers.csv"));
+        assertEquals("replacement,library,linesScanned,attempts,hits,misses", replacers.get(0));
+        assertTrue(replacers.contains("\"(libs.junit.bom)\",\"org.junit:junit-bom\",16,1,1,0"), String.join("\n", replacers));
+        assertTrue(replacers.contains("\"(libs.name1)\",\"group1:name1\",16,2,1,1"), String.join("\n", replacers));
+
+        // everything but the eight declarations
+        final var rewrites = Files.readAllLines(reportDir.resolve("rewrites.csv"));
+        assertEquals(List.of("task,lines,rejectedLines", ":rewriteBuildGradle,16,8"), rewrites);
+
+        // the rewrite is up to date, so applying the conversion leaves its reports alone
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("applyConversion")
+                .build();
+        assertEquals(replacers, Files.readAllLines(reportDir.resolve("replacers.csv")));
+        assertEquals(rewrites, Files.readAllLines(reportDir.resolve("rewrites.csv")));
+    }
+
+    @Test
+    public void rerunIsUpToDateOrFromCache() throws IOException {
+        writeBuildFiles();
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath();
+
+        runner.withArguments("writeConversionScript", "--build-cache").build();
+
+        final var rerun = runner.withArguments("writeConversionScript", "--build-cache").build();
+        for (final var task : List.of(":extractDeps", ":writeToml", ":rewriteBuildGradle", ":writeConversionScript")) {
+            assertEquals(UP_TO_DATE, rerun.task(task).getOutcome(), task);
+        }
+
+        final var afterClean = runner.withArguments("clean", "writeConversionScript", "--build-cache").build();
+        assertEquals(SUCCESS, afterClean.task(":extractDeps").getOutcome());
+        for (final var task : List.of(":writeToml", ":rewriteBuildGradle")) {
+            assertEquals(FROM_CACHE, afterClean.task(task).getOutcome(), task);
+        }
+    }
+
+    @Test
+    public void configurationCacheIsReused() throws IOException {
+        writeBuildFiles();
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("writeConversionScript", "--configuration-cache");
+
+        final var first = runner.build();
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"), first.getOutput());
+
+        final var second = runner.build();
+        assertTrue(second.getOutput().contains("Configuration cache entry reused"), second.getOutput());
+    }
+
+    @Test
+    public void projectConstraintsAreSkipped() throws IOException {
+        Files.writeString(settingsFile.toPath(), "rootProject.name = 'hello-world'\ninclude 'sub'");
+        Files.write(buildFile.toPath(), List.of(
+                "plugins {",
+                "  id('java')",
+                "  id('io.github.jeffalder.tomlconverter')",
+                "}",
+                "",
+                "dependencies {",
+                "  constraints {",
+                "    implementation 'org.slf4j:slf4j-api:2.0.0'",
+                "    implementation project(':sub')",
+                "    testImplementation project(':sub')",
+                "  }",
+                "}"
+        ));
+        Files.createDirectories(testProjectDir.toPath().resolve("sub"));
+        Files.writeString(testProjectDir.toPath().resolve(Path.of("sub", "build.gradle")), "apply plugin: 'java'\n");
+
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("writeToml")
+                .build();
+
+        final var tomlContents = Files.readString(testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "libs.versions.toml")));
+        assertTrue(tomlContents.contains("slf4j-api = { module = \"org.slf4j:slf4j-api\""), tomlContents);
+        assertFalse(tomlContents.contains("sub"), tomlContents);
+    }
+
+    @Test
+    public void configurationsCanBeChosen() throws IOException {
+        Files.writeString(settingsFile.toPath(), "rootProject.name = 'hello-world'");
+        Files.write(buildFile.toPath(), List.of(
+                "plugins {",
+                "  id('java')",
+                "  id('io.github.jeffalder.tomlconverter')",
+                "}",
+                "",
+                "sourceSets {",
+                "  integrationTest",
+                "}",
+                "",
+                "tomlConverter {",
+                "  configurations = ['*']",
+                "  excludedConfigurations = ['annotation*']",
+                "}",
+                "",
+                "dependencies {",
+                "  implementation 'com.google.guava:guava:31.1-jre'",
+                "  compileOnly 'org.slf4j:slf4j-api:2.0.0'",
+                "  integrationTestImplementation 'org.junit:junit:4.13.2'",
+                "  annotationProcessor 'org.projectlombok:lombok:1.18.24'",
+                "}"
+        ));
+
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("writeToml")
+                .build();
+
+        final var tomlContents = Files.readString(testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "libs.versions.toml")));
+        for (final var module : List.of("com.google.guava:guava", "org.slf4j:slf4j-api", "org.junit:junit")) {
+            assertTrue(tomlContents.contains("module = \"" + module + "\""), tomlContents);
+        }
+        assertFalse(tomlContents.contains("lombok"), tomlContents);
+    }
+
+    @Test
+    public void subprojectsOnlyUseTheirOwnLibraries() throws IOException {
+        Files.writeString(settingsFile.toPath(), "rootProject.name = 'hello-world'\ninclude 'sub', 'plain'");
+        Files.write(buildFile.toPath(), List.of(
+                "plugins {",
+                "  id('java')",
+                "  id('io.github.jeffalder.tomlconverter')",
+                "}",
+                "",
+                "subprojects {",
+                "  apply plugin: 'java'",
+                "  dependencies {",
+                "    implementation 'org.slf4j:slf4j-api:2.0.0'",
+                "  }",
+                "}",
+                "",
+                "dependencies {",
+                "  implementation 'org.junit:junit:4.13.2'",
+                "}"
+        ));
+        final var subBuildFile = new File(testProjectDir, "sub/build.gradle").toPath();
+        Files.createDirectories(subBuildFile.getParent());
+        Files.write(subBuildFile, List.of(
+                "dependencies {",
+                "  implementation 'com.google.guava:guava:31.1-jre'",
+                "}",
+                "// the root project's library, which only the root project's rewrite looks for",
+                "def rootOnly = 'org.junit:junit:4.13.2'",
+                "dependencies {",
+                "}"
+        ));
+        final var plainBuildFile = new File(testProjectDir, "plain/build.gradle").toPath();
+        Files.createDirectories(plainBuildFile.getParent());
+        Files.writeString(plainBuildFile, "// nothing to convert here\n");
+
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("writeConversionScript")
+                .build();
+
+        final var rootContents = Files.readString(testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "build.gradle.new")));
+        assertTrue(rootContents.contains("    implementation(libs.slf4j.api)\n"), rootContents);
+        assertTrue(rootContents.contains("  implementation(libs.junit)\n"), rootContents);
+
+        final var subContents = Files.readString(testProjectDir.toPath().resolve(Path.of("sub", "build", BUILD_SUBDIR, "build.gradle.new")));
+        assertTrue(subContents.contains("  implementation(libs.guava)\n"), subContents);
+        assertTrue(subContents.contains("def rootOnly = 'org.junit:junit:4.13.2'\n"), subContents);
+
+        // unchanged build files get no output, and aren't in the script
+        assertFalse(testProjectDir.toPath().resolve(Path.of("plain", "build", BUILD_SUBDIR, "build.gradle.new")).toFile().exists());
+        final var script = Files.readString(testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "convert.sh")));
+        assertTrue(script.contains("sub/build.gradle\n"), script);
+        assertFalse(script.contains("plain"), script);
+    }
+
+    @Test
+    public void incrementalConversionKeepsKeysAndSkipsUnchangedProjects() throws IOException {
+        Files.writeString(settingsFile.toPath(), "rootProject.name = 'hello-world'\ninclude 'sub'");
+        final var rootBuildFile = List.of(
+                "plugins {",
+                "  id('java')",
+                "  id('io.github.jeffalder.tomlconverter')",
+                "}",
+                "",
+                "tomlConverter {",
+                "  incremental = true",
+                "}",
+                "",
+                "dependencies {",
+                "  implementation 'org.junit:junit-bom:5.9.1'",
+                "}"
+        );
+        Files.write(buildFile.toPath(), rootBuildFile);
+        final var subBuildFile = new File(testProjectDir, "sub/build.gradle").toPath();
+        Files.createDirectories(subBuildFile.getParent());
+        Files.write(subBuildFile, List.of(
+                "plugins {",
+                "  id('java')",
+                "}",
+                "",
+                "dependencies {",
+                "  implementation 'com.google.guava:guava:31.1-jre'",
+                "}"
+        ));
+        final var existingToml = new File(testProjectDir, "gradle/libs.versions.toml").toPath();
+        Files.createDirectories(existingToml.getParent());
+        Files.write(existingToml, List.of(
+                "[versions]",
+                "guava = \"31.1-jre\"",
+                "",
+                "[libraries]",
+                "google-guava = { module = \"com.google.guava:guava\", version.ref = \"guava\" }",
+                "junit = \"org.junit:junit:4.13.2\"",
+                "",
+                "[plugins]",
+                "versions = { id = \"com.github.ben-manes.versions\", version = \"0.44.0\" }"
+        ));
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath();
+        runner.withArguments("writeConversionScript").build();
+
+        final var toml = Files.readString(testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "libs.versions.toml")));
+        assertTrue(toml.contains("\nguava = \"31.1-jre\"\n"), toml);
+        assertTrue(toml.contains("\ngoogle-guava = { module = \"com.google.guava:guava\", version.ref = \"guava\" }\n"), toml);
+        assertTrue(toml.contains("\njunit = { module = \"org.junit:junit\", version = \"4.13.2\" }\n"), toml);
+        assertTrue(Pattern.compile("\njunit[0-9a-f]{4}-bom = \\{ module = \"org.junit:junit-bom\"").matcher(toml).find(), toml);
+        assertTrue(toml.endsWith("[plugins]\nversions = { id = \"com.github.ben-manes.versions\", version = \"0.44.0\" }\n"), toml);
+
+        final var subContents = Files.readString(testProjectDir.toPath().resolve(Path.of("sub", "build", BUILD_SUBDIR, "build.gradle.new")));
+        assertTrue(subContents.contains("  implementation(libs.google.guava)\n"), subContents);
+
+        // a library added to the root project doesn't change the keys sub uses, so sub isn't rewritten again
+        final var changedRootBuildFile = new ArrayList<>(rootBuildFile);
+        changedRootBuildFile.add(changedRootBuildFile.size() - 1, "  implementation 'org.slf4j:slf4j-api:2.0.0'");
+        Files.write(buildFile.toPath(), changedRootBuildFile);
+
+        final var rerun = runner.withArguments("writeConversionScript").build();
+        assertEquals(SUCCESS, rerun.task(":writeToml").getOutcome());
+        assertEquals(SUCCESS, rerun.task(":rewriteBuildGradle").getOutcome());
+        assertEquals(UP_TO_DATE, rerun.task(":sub:rewriteBuildGradle").getOutcome());
+    }
+
+    @Test
+    public void applyConversionInstallsChangedFiles() throws IOException {
+        writeBuildFiles();
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath();
+
+        final var result = runner.withArguments("applyConversion").build();
+        assertTrue(result.getOutput().contains("Applied 2 converted files, 0 were already up to date"), result.getOutput());
+
+        final var tomlContents = Files.readString(testProjectDir.toPath().resolve(Path.of("gradle", "libs.versions.toml")));
+        verifyTomlContents(tomlContents);
+        assertEquals(Files.readString(testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "build.gradle.new"))),
+                Files.readString(buildFile.toPath()));
+
+        // the build now uses the catalog, so nothing needs converting
+        final var rerun = runner.withArguments("applyConversion").build();
+        assertTrue(rerun.getOutput().contains("Applied 0 converted files, 1 were already up to date"), rerun.getOutput());
+    }
+
+    @Test
+    public void applyConversionChangesNothingIfAnyFileFails() throws IOException {
+        writeBuildFiles();
+        final var original = Files.readString(buildFile.toPath());
+        // libs.versions.toml can't be written where a file is in the way of its directory
+        Files.writeString(testProjectDir.toPath().resolve("gradle"), "in the way");
+
+        final var result = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath()
+                .withArguments("applyConversion")
+                .buildAndFail();
+
+        assertTrue(result.getOutput().contains("nothing was changed"), result.getOutput());
+        assertEquals(original, Files.readString(buildFile.toPath()));
+    }
+
+    @Test
+    public void patchOutputModeWritesDiffsOfTheChangedStatements() throws IOException {
+        writeBuildFiles();
+        Files.writeString(buildFile.toPath(), "tomlConverter {\n  outputMode = 'patch'\n}\n", StandardOpenOption.APPEND);
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath();
+
+        final var result = runner.withArguments("writeConversionScript").build();
+        assertEquals(SUCCESS, result.task(":writeConversionScript").getOutcome());
+
+        final var outputDir = testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR));
+        assertFalse(Files.exists(outputDir.resolve("build.gradle.new")));
+        final var diff = Files.readAllLines(outputDir.resolve("build.gradle.patch"));
+        assertEquals(List.of("--- a/build.gradle", "+++ b/build.gradle", "@@ -5,14 +5,14 @@"), diff.subList(0, 3));
+        assertTrue(diff.contains("-  testRuntimeOnly(\"group1:name1:4.1.5:test\")"), String.join("\n", diff));
+        assertTrue(diff.contains("+  testRuntimeOnly(libs.name1) { artifact { classifier = \"test\" } }"), String.join("\n", diff));
+        assertEquals(diff, Files.readAllLines(outputDir.resolve("conversion.patch")));
+        assertTrue(Files.readAllLines(outputDir.resolve("convert.sh"))
+                .contains("patch " + buildFile.getAbsolutePath() + " " + outputDir.resolve("build.gradle.patch").toAbsolutePath()));
+
+        final var applied = runner.withArguments("applyConversion").build();
+        assertTrue(applied.getOutput().contains("Applied 2 converted files, 0 were already up to date"), applied.getOutput());
+        final var contents = Files.readAllLines(buildFile.toPath());
+        assertTrue(contents.contains("  testRuntimeOnly(libs.name1) { artifact { classifier = \"test\" } }"), String.join("\n", contents));
+        assertTrue(contents.contains("  outputMode = 'patch'"), String.join("\n", contents));
+    }
+
+    @Test
+    public void appliedScriptsAndConventionPluginsAreRewritten() throws IOException {
+        final var root = testProjectDir.toPath();
+        Files.writeString(settingsFile.toPath(), "rootProject.name = 'hello-world'");
+        Files.createDirectories(root.resolve("buildSrc/src/main/groovy"));
+        Files.writeString(root.resolve("buildSrc/build.gradle"), "plugins {\n  id 'groovy-gradle-plugin'\n}\n");
+        Files.write(root.resolve("buildSrc/src/main/groovy/conventions.gradle"), List.of(
+                "plugins {",
+                "  id 'java'",
+                "}",
+                "dependencies {",
+                "  testImplementation 'group1:name1:4.1.5'",
+                "}"
+        ));
+        Files.createDirectories(root.resolve("gradle"));
+        Files.write(root.resolve("gradle/deps.gradle"), List.of(
+                "dependencies {",
+                "  implementation 'org.junit:junit:4.13.2'",
+                "}"
+        ));
+        Files.write(buildFile.toPath(), List.of(
+                "plugins {",
+                "  id 'conventions'",
+                "  id('io.github.jeffalder.tomlconverter')",
+                "}",
+                "apply from: \"$rootDir/gradle/deps.gradle\""
+        ));
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath();
+
+        // the scripts are found again when the configuration cache is checked, so a new one is rewritten too
+        runner.withArguments("rewriteScripts", "--configuration-cache").build();
+        Files.write(root.resolve("buildSrc/src/main/groovy/more-conventions.gradle"), List.of(
+                "dependencies {",
+                "  implementation 'org.junit:junit:4.13.2'",
+                "}"
+        ));
+        final var cached = runner.withArguments("rewriteScripts", "--configuration-cache").build();
+        assertEquals(SUCCESS, cached.task(":rewriteScripts").getOutcome());
+        assertTrue(Files.exists(root.resolve(Path.of("build", BUILD_SUBDIR, "scripts", "buildSrc", "src", "main", "groovy",
+                "more-conventions.gradle.new"))), cached.getOutput());
+        Files.delete(root.resolve("buildSrc/src/main/groovy/more-conventions.gradle"));
+
+        final var result = runner.withArguments("applyConversion").build();
+        assertEquals(SUCCESS, result.task(":rewriteScripts").getOutcome());
+        assertTrue(result.getOutput().contains("Applied 3 converted files, 0 were already up to date"), result.getOutput());
+        assertTrue(Files.readAllLines(root.resolve("gradle/deps.gradle")).contains("  implementation(libs.junit)"));
+        assertTrue(Files.readAllLines(root.resolve("buildSrc/src/main/groovy/conventions.gradle"))
+                .contains("  testImplementation(libs.name1)"));
+
+        // the converted scripts use the catalog, so the build still finds the same libraries
+        final var rerun = runner.withArguments("applyConversion").build();
+        assertTrue(rerun.getOutput().contains("Applied 0 converted files, 1 were already up to date"), rerun.getOutput());
+    }
+
+    @Test
+    public void checkTomlConversionReportsLibrariesMissingFromTheCatalog() throws IOException {
+        // other has no build file of its own, so its dependencies can only be declared by the root project
+        Files.writeString(settingsFile.toPath(), "rootProject.name = 'hello-world'\ninclude 'sub', 'other'");
+        Files.write(buildFile.toPath(), List.of(
+                "plugins {",
+                "  id('java')",
+                "  id('io.github.jeffalder.tomlconverter')",
+                "}",
+                "",
+                "subprojects {",
+                "  apply plugin: 'java'",
+                "  dependencies {",
+                "    implementation 'org.slf4j:slf4j-api:2.0.0'",
+                "  }",
+                "}",
+                "",
+                "dependencies {",
+                "  implementation(libs.junit)",
+                "}"
+        ));
+        final var subBuildFile = new File(testProjectDir, "sub/build.gradle").toPath();
+        Files.createDirectories(subBuildFile.getParent());
+        Files.write(subBuildFile, List.of(
+                "dependencies {",
+                "  implementation 'com.google.guava:guava:31.1-jre'",
+                "}"
+        ));
+        Files.createDirectories(testProjectDir.toPath().resolve("other"));
+        final var catalog = testProjectDir.toPath().resolve(Path.of("gradle", "libs.versions.toml"));
+        Files.createDirectories(catalog.getParent());
+        Files.write(catalog, List.of(
+                "[libraries]",
+                "junit = { module = \"org.junit:junit\", version = \"4.13.2\" }"
+        ));
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withPluginClasspath();
+        runner.withArguments("checkTomlConversion").buildAndFail();
+
+        final var report = testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "check.txt"));
+        assertEquals(List.of("build.gradle: org.slf4j:slf4j-api:2.0.0", "sub/build.gradle: com.google.guava:guava:31.1-jre"),
+                Files.readAllLines(report));
+
+        // the check only needs the libraries, so comments and rich versions don't fail it
+        Files.write(catalog, List.of(
+                "[versions]",
+                "jackson = { strictly = \"2.15.0\" }",
+                "",
+                "[libraries]",
+                "# the test framework",
+                "junit = { module = \"org.junit:junit\", version = \"4.13.2\" } # pinned",
+                "jackson = { module = \"com.fasterxml.jackson.core:jackson-core\", version.ref = \"jackson\" }",
+                "guava = \"com.google.guava:guava:31.1-jre\"",
+                "slf4j-api = { group = \"org.slf4j\", name = \"slf4j-api\", version = \"2.0.0\" }"
+        ));
+        Files.write(subBuildFile, List.of(
+                "dependencies {",
+                "  implementation(libs.guava)",
+                "}"
+        ));
+
+        // libraries in the catalog pass however they're declared
+        assertEquals(SUCCESS, runner.withArguments("checkTomlConversion").build().task(":checkTomlConversion").getOutcome());
+        assertEquals(List.of(), Files.readAllLines(report));
+        assertEquals(UP_TO_DATE, runner.withArguments("checkTomlConversion").build().task(":checkTomlConversion").getOutcome());
+    }
+
+    @Test
+    public void verifyConversionComparesResolvedDependencies() throws IOException {
+        // the nested build has to find the plugin itself, so it's published to a local repository along with the libraries
+        final var repo = testProjectDir.toPath().resolve("repo");
+        publishPlugin(repo);
+        publishModule(repo, "org.example", "lib", "1.0", "<dependency><groupId>org.example</groupId>"
+                + "<artifactId>transitive</artifactId><version>2.0</version></dependency>");
+        publishModule(repo, "org.example", "transitive", "2.0", "");
+        publishModule(repo, "group1", "name1", "4.1.5", "");
+        Files.write(repo.resolve("group1/name1/4.1.5/name1-4.1.5-test.jar"), new byte[0]);
+
+        Files.writeString(settingsFile.toPath(), "pluginManagement { repositories { maven { url = uri('repo') } } }\n"
+                + "rootProject.name = 'hello-world'\ninclude 'sub'");
+        Files.write(buildFile.toPath(), List.of(
+                "plugins {",
+                "  id('java')",
+                "  id('io.github.jeffalder.tomlconverter') version '1.0.0'",
+                "}",
+                "",
+                "allprojects {",
+                "  repositories { maven { url = uri(\"$rootDir/repo\") } }",
+                "}",
+                "",
+                "dependencies {",
+                "  implementation 'org.example:lib:1.0'",
+                "}",
+                "",
+                "// stands in for a conversion that got a version wrong",
+                "tasks.named('resolveConvertedDeps') {",
+                "  doFirst {",
+                "    if (project.hasProperty('breakCatalog')) {",
+                "      def toml = file('build/tomlConverter/libs.versions.toml')",
+                "      toml.text = toml.text.replace('\"1.0\"', '\"1.1\"')",
+                "    }",
+                "  }",
+                "}"
+        ));
+        final var subBuildFile = new File(testProjectDir, "sub/build.gradle.kts").toPath();
+        Files.createDirectories(subBuildFile.getParent());
+        Files.write(subBuildFile, List.of(
+                "plugins {",
+                "  java",
+                "}",
+                "",
+                "dependencies {",
+                "  implementation(project(\":\"))",
+                "  testRuntimeOnly(\"group1:name1:4.1.5:test\")",
+                "  runtimeOnly(\"org.example:missing:3.0\")",
+                "}"
+        ));
+
+        final var runner = GradleRunner.create()
+                .withProjectDir(testProjectDir);
+        final var result = runner.withArguments("verifyConversion").build();
+
+        assertEquals(SUCCESS, result.task(":verifyConversion").getOutcome());
+        final var report = testProjectDir.toPath().resolve(Path.of("build", BUILD_SUBDIR, "verification.txt"));
+        assertEquals(List.of(), Files.readAllLines(report));
+        final var resolved = Files.readAllLines(testProjectDir.toPath().resolve(Path.of("sub", "build", BUILD_SUBDIR, "resolved.txt")));
+        assertTrue(resolved.contains("testRuntimeClasspath artifact name1-4.1.5-test.jar"), String.join("\n", resolved));
+        assertTrue(resolved.contains("runtimeClasspath org.example:transitive:2.0"), String.join("\n", resolved));
+        assertTrue(resolved.contains("runtimeClasspath unresolved org.example:missing:3.0"), String.join("\n", resolved));
+
+        // resolution happens in the task action, so the task always runs, and it can come from the configuration cache
+        for (var i = 0; i < 2; i++) {
+            final var resolveResult = runner.withArguments("resolveDeps", "--configuration-cache").build();
+            assertEquals(SUCCESS, resolveResult.task(":sub:resolveDeps").getOutcome());
+        }
+        assertEquals(resolved, Files.readAllLines(testProjectDir.toPath().resolve(Path.of("sub", "build", BUILD_SUBDIR, "resolved.txt"))));
+
+        final var failure = runner.withArguments("verifyConversion", "-PbreakCatalog").buildAndFail();
+
+        // the root project's four classpaths, and the sub project's runtime classpaths through its dependency on the root
+        assertTrue(failure.getOutput().contains("resolves 6 configurations differently"), failure.getOutput());
+        final var differences = Files.readAllLines(report);
+        assertTrue(differences.contains("project :, configuration compileClasspath: only before [artifact lib-1.0.jar, artifact transitive-2.0.jar, "
+                + "org.example:lib:1.0, org.example:transitive:2.0], only after [unresolved org.example:lib:1.1]"), String.join("\n", differences));
+    }
+
+    private void writeBuildFiles() throws IOException {
         Files.writeString(settingsFile.toPath(), "rootProject.name = 'hello-world'");
         Files.write(buildFile.toPath(), List.of("",
                 "plugins {",
@@ -54,23 +626,6 @@ public class PluginTest {
                 "  testRuntimeOnly(\"group1:name1:4.1.5:test\")",
                 "}"
         ));
-
-        final var result = GradleRunner.create()
-                .withProjectDir(testProjectDir)
-                .withPluginClasspath()
-                .withArguments("writeConversionScript")
-                .build();
-
-        assertEquals(SUCCESS, result.task(":writeConversionScript").getOutcome());
-
-        final var tomlFile = testProjectDir.toPath()
-                .resolve(Path.of("build", BUILD_SUBDIR, "libs.versions.toml"));
-
-        assertTrue(tomlFile.toFile().exists());
-        final var tomlContents = Files.readString(tomlFile, StandardCharsets.UTF_8);
-
-        verifyTomlContents(tomlContents);
-        verifyBuildGradleContents(tomlContents);
     }
 
     private void verifyBuildGradleContents(final String tomlContents) throws IOException {
@@ -93,7 +648,7 @@ public class PluginTest {
                         + "  implementation\\(libs.junit.jupiter.api([0-9a-f]{4})?\\)\n"
                         + "  runtimeOnly\\(libs.junit.jupiter.api([0-9a-f]{4})?\\)\n"
                         + "  testImplementation\\(libs.name1\\)\n"
-                        + "  testRuntimeOnly\\(libs.name1\\) \\{ artifact \\{ classifier = 'test' } }\n"
+                        + "  testRuntimeOnly\\(libs.name1\\) \\{ artifact \\{ classifier = \"test\" } }\n"
                         + "}\n"
                 , Pattern.DOTALL).matcher(contents);
 
@@ -129,4 +684,49 @@ public class PluginTest {
         // single version
         assertEquals(1, Pattern.compile("(group1:name1)").matcher(tomlContents).results().count());
     }
+
+    private void publishPlugin(final Path repo) throws IOException {
+        final var metadata = new Properties();
+        try (final var in = getClass().getClassLoader().getResourceAsStream("plugin-under-test-metadata.properties")) {
+            metadata.load(in);
+        }
+
+        final var dir = repo.resolve("io/github/jeffalder/toml-converter-plugin/1.0.0");
+        Files.createDirectories(dir);
+        try (final var jar = new JarOutputStream(Files.newOutputStream(dir.resolve("toml-converter-plugin-1.0.0.jar")))) {
+            for (final var entry : metadata.getProperty("implementation-classpath").split(File.pathSeparator)) {
+                final var root = Path.of(entry);
+                final List<Path> files;
+                try (final var walk = Files.walk(root)) {
+                    files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+                }
+                for (final var file : files) {
+                    jar.putNextEntry(new ZipEntry(root.relativize(file).toString().replace(File.separatorChar, '/')));
+                    Files.copy(file, jar);
+                    jar.closeEntry();
+                }
+            }
+        }
+        Files.writeString(dir.resolve("toml-converter-plugin-1.0.0.pom"), pom("io.github.jeffalder", "toml-converter-plugin", "1.0.0", ""));
+
+        final var marker = repo.resolve("io/github/jeffalder/tomlconverter/io.github.jeffalder.tomlconverter.gradle.plugin/1.0.0");
+        Files.createDirectories(marker);
+        Files.writeString(marker.resolve("io.github.jeffalder.tomlconverter.gradle.plugin-1.0.0.pom"),
+                pom("io.github.jeffalder.tomlconverter", "io.github.jeffalder.tomlconverter.gradle.plugin", "1.0.0",
+                        "<dependency><groupId>io.github.jeffalder</groupId><artifactId>toml-converter-plugin</artifactId>"
+                                + "<version>1.0.0</version></dependency>").replace("<dependencies>", "<packaging>pom</packaging><dependencies>"));
+    }
+
+    private static void publishModule(final Path repo, final String group, final String name, final String version,
+                                      final String dependencies) throws IOException {
+        final var dir = repo.resolve(group.replace('.', '/')).resolve(name).resolve(version);
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(name + "-" + version + ".pom"), pom(group, name, version, dependencies));
+        Files.write(dir.resolve(name + "-" + version + ".jar"), new byte[0]);
+    }
+
+    private static String pom(final String group, final String name, final String version, final String dependencies) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>" + group + "</groupId><artifactId>" + name
+                + "</artifactId><version>" + version + "</version><dependencies>" + dependencies + "</dependencies></project>";
+    }
 }
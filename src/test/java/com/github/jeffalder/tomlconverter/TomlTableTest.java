@@ -0,0 +1,121 @@
+package com.github.jeffalder.tomlconverter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TomlTableTest {
+    @Test
+    public void suffixesConflictingPrefix() {
+        final var table = new TomlTable<Row>("libraries");
+        table.addAll(List.of(new Row("junit"), new Row("junit-bom"), new Row("junit.jupiter")));
+
+        final var keys = keysByBaseId(table);
+        assertEquals("junit-bom", keys.get("junit-bom"));
+        assertEquals("junit-jupiter", keys.get("junit.jupiter"));
+        assertTrue(keys.get("junit").matches("junit[0-9a-f]{4}"), keys.get("junit"));
+    }
+
+    @Test
+    public void suffixesAreDeterministic() {
+        final var rows = List.of(new Row("junit"), new Row("junit-bom"), new Row("junit-bom"), new Row("junit"));
+
+        final var first = new TomlTable<Row>("libraries");
+        first.addAll(rows);
+        final var second = new TomlTable<Row>("libraries");
+        second.addAll(List.of(rows.get(3), rows.get(1), rows.get(0), rows.get(2)));
+
+        final var firstKeys = new ArrayList<String>();
+        first.forEach(entry -> firstKeys.add(entry.getKey()));
+        final var secondKeys = new ArrayList<String>();
+        second.forEach(entry -> secondKeys.add(entry.getKey()));
+
+        assertEquals(4, firstKeys.size());
+        assertEquals(firstKeys, secondKeys);
+    }
+
+    @Test
+    public void existingKeysDontChange() {
+        final var table = new TomlTable<Row>("libraries");
+        table.put("junit", new Row("junit"));
+        table.put("guava-lib", new Row("guava"));
+        table.addAll(List.of(new Row("junit-bom"), new Row("guava")));
+
+        final var keys = new ArrayList<String>();
+        table.forEach(entry -> keys.add(entry.getKey()));
+        assertTrue(keys.contains("junit"), keys.toString());
+        assertTrue(keys.contains("guava-lib"), keys.toString());
+        assertTrue(keys.stream().anyMatch(key -> key.matches("guava[0-9a-f]{4}")), keys.toString());
+        assertTrue(keys.stream().anyMatch(key -> key.matches("junit[0-9a-f]{4}-bom")), keys.toString());
+    }
+
+    @Test
+    public void scalesToLargeTables() {
+        final var rows = new ArrayList<Row>();
+        for (var i = 0; i < 100_000; i++) {
+            rows.add(new Row("artifact-" + i + "-core"));
+        }
+
+        final var table = new TomlTable<Row>("libraries");
+        assertTimeout(Duration.ofSeconds(10), () -> table.addAll(rows));
+
+        assertEquals(rows.size(), keysByBaseId(table).size());
+    }
+
+    @Test
+    public void writesRowsInKeyOrderWithEscapedStrings() throws IOException {
+        final var table = new TomlTable<Row>("versions");
+        table.addAll(List.of(new Row("zeta"), new Row("alpha"), new Row("say \"hi\"\\\t")));
+
+        final var output = new StringWriter();
+        table.write(new TomlWriter(output));
+
+        final var newline = System.lineSeparator();
+        assertEquals("[versions]" + newline
+                + "alpha = \"alpha\"" + newline
+                + "say-hi = \"say \\\"hi\\\"\\\\\\t\"" + newline
+                + "zeta = \"zeta\"" + newline
+                + newline, output.toString());
+    }
+
+    private static Map<String, String> keysByBaseId(final TomlTable<Row> table) {
+        final var keys = new HashMap<String, String>();
+        for (final var entry : table) {
+            keys.put(entry.getValue().getBaseId(), entry.getKey());
+        }
+        return keys;
+    }
+
+    private static class Row implements TomlTable.TomlTableRow {
+        private final String baseId;
+
+        private Row(final String baseId) {
+            this.baseId = baseId;
+        }
+
+        @Override
+        public String getBaseId() {
+            return baseId;
+        }
+
+        @Override
+        public String getStableId() {
+            return baseId;
+        }
+
+        @Override
+        public void write(final TomlWriter writer) {
+            writer.string(baseId);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AppliedScriptsTest {
+    private static final Path ROOT = Path.of("/build");
+    private static final Path PROJECT = ROOT.resolve("sub");
+
+    @Test
+    public void findsLocalScripts() {
+        final var script = String.join("\n",
+                "apply from: 'gradle/one.gradle'",
+                "apply from: \"$rootDir/gradle/two.gradle\"",
+                "apply from: \"${rootProject.projectDir}/gradle/three.gradle\"",
+                "apply from: rootProject.file('gradle/four.gradle')",
+                "apply from: file('../five.gradle')",
+                "apply(from = \"$projectDir/six.gradle.kts\")",
+                "allprojects {",
+                "    apply from: '/shared/seven.gradle'",
+                "}");
+
+        assertEquals(List.of(
+                PROJECT.resolve("gradle/one.gradle"),
+                ROOT.resolve("gradle/two.gradle"),
+                ROOT.resolve("gradle/three.gradle"),
+                ROOT.resolve("gradle/four.gradle"),
+                ROOT.resolve("five.gradle"),
+                PROJECT.resolve("six.gradle.kts"),
+                Path.of("/shared/seven.gradle")
+        ), AppliedScripts.find(script, PROJECT, ROOT));
+    }
+
+    @Test
+    public void skipsRemoteAndComputedScripts() {
+        final var script = String.join("\n",
+                "apply from: 'https://example.com/remote.gradle'",
+                "apply from: \"$rootDir/gradle/${flavor}.gradle\"",
+                "apply from: \"$scriptsDir/other.gradle\"",
+                "apply from: new File(rootDir, 'gradle/file.gradle')",
+                "// apply from: 'commented.gradle'",
+                "apply plugin: 'java'");
+
+        assertEquals(List.of(), AppliedScripts.find(script, PROJECT, ROOT));
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClassifierSetTest {
+    @Test
+    public void noClassifierComesFirst() {
+        final var set = new ClassifierSet(Arrays.asList("test", null, "sources", "javadoc"));
+        assertEquals(Arrays.asList(null, "javadoc", "sources", "test"), new ArrayList<>(set));
+    }
+
+    @Test
+    public void ignoresDuplicates() {
+        final var set = new ClassifierSet();
+        assertTrue(set.add("test"));
+        assertTrue(set.add(null));
+        assertFalse(set.add("test"));
+        assertFalse(set.add(null));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void containsNull() {
+        final var set = new ClassifierSet();
+        assertFalse(set.contains(null));
+        set.add("test");
+        assertFalse(set.contains(null));
+        set.add(null);
+        assertTrue(set.contains(null));
+        assertTrue(set.contains("test"));
+        assertFalse(set.contains("sources"));
+    }
+
+    @Test
+    public void equalsOtherSets() {
+        assertEquals(new ClassifierSet(), Set.of());
+        assertEquals(new ClassifierSet(List.of("sources", "test")), Set.of("test", "sources"));
+        assertEquals(Set.of("test", "sources").hashCode(), new ClassifierSet(List.of("sources", "test")).hashCode());
+    }
+
+    @Test
+    public void coordinatesDontHandOutTheSet() {
+        final var coordinates = new GVACoordinates("group", "name", "1.0").addClassifier("test");
+        assertThrows(UnsupportedOperationException.class, () -> coordinates.getClassifiers().add("sources"));
+        assertThrows(UnsupportedOperationException.class, () -> coordinates.getClassifiers().clear());
+        assertEquals(Set.of("test"), coordinates.getClassifiers());
+    }
+}
@@ -0,0 +1,328 @@
+package com.github.jeffalder.tomlconverter.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RewriteEngineTest {
+    private static final List<BuildGradleReplacer> REPLACERS = List.of(
+            replacer("junit", "org.junit", "junit", "4.13.2", null),
+            replacer("junit-bom", "org.junit", "junit-bom", "5.9.1", null),
+            replacer("name1", "group1", "name1", "4.1.5", null),
+            replacer("name1", "group1", "name1", "4.1.5", "test"),
+            replacer("unversioned", "some.group", "unversioned", null, null),
+            replacer("kafka", "org.apache.kafka", "kafka", "3.3.1", null)
+    );
+
+    @Test
+    public void rewritesStringNotation() {
+        assertRewrites(Map.ofEntries(
+                Map.entry("  implementation 'org.junit:junit:4.13.2'", "  implementation(libs.junit)"),
+                Map.entry("  implementation platform('org.junit:junit-bom:5.9.1')", "  implementation platform(libs.junit.bom)"),
+                Map.entry("  implementation(\"org.junit:junit:${junitVersion}\")", "  implementation(libs.junit)"),
+                Map.entry("  implementation \"org.junit:junit:$junitVersion\"", "  implementation(libs.junit)"),
+                Map.entry("  testImplementation(\"group1:name1:4.1.5\")", "  testImplementation(libs.name1)"),
+                Map.entry("  testRuntimeOnly(\"group1:name1:4.1.5:test\")", "  testRuntimeOnly(libs.name1) { artifact { classifier = \"test\" } }"),
+                Map.entry("  testRuntimeOnly ( 'group1:name1:4.1.5:other' )", "  testRuntimeOnly ( 'group1:name1:4.1.5:other' )"),
+                Map.entry("  implementation 'some.group:unversioned'", "  implementation(libs.unversioned)"),
+                Map.entry("  implementation 'some.group:unversioned:1.0'", "  implementation 'some.group:unversioned:1.0'"),
+                Map.entry("  implementation 'org.junit:junit:1', 'org.junit:junit:2', 'org.junit:junit-bom:3'",
+                        "  implementation(libs.junit), (libs.junit), (libs.junit.bom)"),
+                Map.entry("  implementation \"org.apache.kafka:kafka:${a}\" + \"org.apache.kafka:kafka:${b}\"",
+                        "  implementation(libs.kafka) + (libs.kafka)"),
+                Map.entry("  implementation \"xorg.junit:junit:4.13.2\"", "  implementation \"xorg.junit:junit:4.13.2\""),
+                Map.entry("  implementation 'org.junit:junit:4.13.2'('group1:name1:4.1.5')", "  implementation(libs.junit)(libs.name1)"),
+                Map.entry("  ext.libraries = [junit: 'org.junit:junit:4.13.2']", "  ext.libraries = [junit: (libs.junit)]"),
+                Map.entry("  // implementation 'org.junit:junit:4.13.2'", "  // implementation 'org.junit:junit:4.13.2'")
+        ));
+    }
+
+    @Test
+    public void rewritesMapNotation() {
+        assertRewrites(Map.ofEntries(
+                Map.entry("  implementation group: 'org.junit', name: 'junit', version: '4.13.2'", "  implementation(libs.junit)"),
+                Map.entry("  implementation group: 'some.group', name: 'unversioned'", "  implementation(libs.unversioned)"),
+                Map.entry("  testRuntimeOnly(group: \"group1\", name: \"name1\", version: \"4.1.5\", classifier: \"test\")",
+                        "  testRuntimeOnly(libs.name1) { artifact { classifier = \"test\" } }"),
+                Map.entry("  implementation(group = \"org.apache.kafka\", name = \"kafka\", version = \"${kafkaVersion}\")",
+                        "  implementation(libs.kafka)"),
+                Map.entry("  implementation group: 'org.junit', name: 'junit', version: '4.13.2', transitive: false",
+                        "  implementation group: 'org.junit', name: 'junit', version: '4.13.2', transitive: false"),
+                Map.entry("  implementation(group: 'org.junit', name: 'junit', version: '4.13.2', configuration: 'x')",
+                        "  implementation(group: 'org.junit', name: 'junit', version: '4.13.2', configuration: 'x')"),
+                Map.entry("  implementation group: \"org.${org}\", name: 'junit', version: '4.13.2'",
+                        "  implementation group: \"org.${org}\", name: 'junit', version: '4.13.2'"),
+                Map.entry("  exclude group: 'org.junit', module: 'junit'", "  exclude group: 'org.junit', module: 'junit'")
+        ));
+    }
+
+    @Test
+    public void rewritesDeclarationsOverSeveralLines() throws IOException {
+        final var buildFile = List.of(
+                "dependencies {",
+                "    implementation group: 'org.junit',",
+                "            name: 'junit',",
+                "            version: '4.13.2'",
+                "    implementation(",
+                "        \"org.apache.kafka:kafka:3.3.1\"",
+                "    )",
+                "    implementation('some.group:unversioned') {",
+                "        because \"\"\"",
+                "            'group1:name1:4.1.5' isn't a declaration in here, ${",
+                "                'nor:in:here'",
+                "            }",
+                "        \"\"\"",
+                "    }",
+                "    /* implementation 'group1:name1:4.1.5'",
+                "       */ testImplementation 'group1:name1:4.1.5'",
+                "}"
+        );
+        final var expected = List.of(
+                "dependencies {",
+                "    implementation(libs.junit)",
+                "    implementation(",
+                "        (libs.kafka)",
+                "    )",
+                "    implementation(libs.unversioned) {",
+                "        because \"\"\"",
+                "            'group1:name1:4.1.5' isn't a declaration in here, ${",
+                "                'nor:in:here'",
+                "            }",
+                "        \"\"\"",
+                "    }",
+                "    /* implementation 'group1:name1:4.1.5'",
+                "       */ testImplementation(libs.name1)",
+                "}"
+        );
+
+        final var engine = new RewriteEngine(REPLACERS);
+        final var output = new StringWriter();
+        try (final var writer = new BufferedWriter(output)) {
+            assertTrue(engine.rewrite(new BufferedReader(new StringReader(String.join("\n", buildFile))), writer));
+        }
+
+        assertEquals(String.join(System.lineSeparator(), expected) + System.lineSeparator(), output.toString());
+        assertEquals(buildFile.size(), engine.getLines());
+    }
+
+    @Test
+    public void pathologicalLineIsNotBacktracked() {
+        // a greedy ${.*} tries every closing brace, so this would take minutes
+        final var line = "  implementation 'org.junit:junit:${" + "}:x".repeat(200_000) + "'";
+        assertSame(line, new RewriteEngine(REPLACERS).rewrite(line));
+    }
+
+    @Test
+    public void unchangedLineIsNotCopied() {
+        final var line = "  implementation project(':core')";
+        assertSame(line, new RewriteEngine(REPLACERS).rewrite(line));
+    }
+
+    @Test
+    public void countsAttemptsAndHits() {
+        final var engine = new RewriteEngine(REPLACERS);
+        engine.rewrite("  implementation 'org.junit:junit:4.13.2'");
+        engine.rewrite("  implementation 'org.junit:junit:4.13.2:sources'");
+        engine.rewrite("  implementation 'group1:name1:4.1.5:test'");
+
+        assertArrayEquals(new int[]{2, 0, 1, 1, 0, 0}, engine.getAttempts());
+        assertArrayEquals(new int[]{1, 0, 0, 1, 0, 0}, engine.getHits());
+    }
+
+    @Test
+    public void countsRejectedLines() throws IOException {
+        final var buildFile = List.of(
+                "plugins {",
+                "    id 'java'",
+                "}",
+                "dependencies {",
+                "    implementation project(':core')",
+                "    implementation 'org.example:unknown:1.0'",
+                "    implementation(",
+                "        'org.junit:junit:4.13.2'",
+                "    )",
+                "    implementation group: 'org.apache.kafka',",
+                "        name: 'kafka', version: '3.3.1', classifier: 'sources'",
+                "}"
+        );
+
+        final var engine = new RewriteEngine(REPLACERS);
+        final var output = new StringWriter();
+        try (final var writer = new BufferedWriter(output)) {
+            engine.rewrite(new BufferedReader(new StringReader(String.join("\n", buildFile))), writer);
+        }
+
+        // there's no kafka library with that classifier, but kafka was still a candidate
+        assertTrue(output.toString().contains("libs.junit"));
+        assertTrue(output.toString().contains("name: 'kafka', version: '3.3.1', classifier: 'sources'"));
+        assertEquals(12, engine.getLines());
+        assertEquals(7, engine.getRejectedLines());
+    }
+
+    @Test
+    public void slashyStringsDontOpenBrackets() throws IOException {
+        final var buildFile = List.of(
+                "def isRelease = !(version ==~ /.*\\(SNAPSHOT\\)$/)",
+                "def pattern = ~/[0-9(]+/",
+                "def third = (9 / 3)",
+                "dependencies {",
+                "    implementation 'org.junit:junit:4.13.2'",
+                "}",
+                "println 'done'"
+        );
+
+        final var engine = new RewriteEngine(REPLACERS);
+        final var output = new StringWriter();
+        try (final var writer = new BufferedWriter(output)) {
+            engine.rewrite(new BufferedReader(new StringReader(String.join("\n", buildFile))), writer);
+        }
+
+        // each line is a statement of its own, so only the declaration's line is a candidate
+        assertEquals(6, engine.getRejectedLines());
+        assertTrue(output.toString().contains("    implementation(libs.junit)\n"), output.toString());
+        assertTrue(output.toString().startsWith(buildFile.get(0) + "\n" + buildFile.get(1) + "\n"), output.toString());
+    }
+
+    @Test
+    public void catalogLookupReplacesDeclarationsInKotlinScriptPlugins() {
+        final var replacers = REPLACERS.stream().map(BuildGradleReplacer::withCatalogLookup).collect(Collectors.toList());
+        final var engine = new RewriteEngine(replacers);
+
+        assertEquals("    implementation(platform(the<VersionCatalogsExtension>().named(\"libs\").findLibrary(\"junit-bom\").get()))",
+                engine.rewrite("    implementation(platform(\"org.junit:junit-bom:5.9.1\"))"));
+        assertEquals("    testRuntimeOnly(the<VersionCatalogsExtension>().named(\"libs\").findLibrary(\"name1\").get())"
+                        + " { artifact { classifier = \"test\" } }",
+                engine.rewrite("    testRuntimeOnly(\"group1:name1:4.1.5:test\")"));
+    }
+
+    @Test
+    public void diffHasOnlyTheChangedStatements() throws IOException {
+        final var buildFile = List.of(
+                "plugins {",
+                "    id 'java'",
+                "}",
+                "dependencies {",
+                "    implementation 'org.junit:junit:4.13.2'",
+                "    implementation project(':a')",
+                "    implementation project(':b')",
+                "    implementation project(':c')",
+                "    implementation project(':d')",
+                "    implementation project(':e')",
+                "    implementation project(':f')",
+                "    implementation group: 'org.apache.kafka',",
+                "        name: 'kafka', version: '3.3.1'",
+                "}"
+        );
+
+        final var output = new StringWriter();
+        try (final var writer = new BufferedWriter(output)) {
+            assertTrue(new RewriteEngine(REPLACERS).diff(new BufferedReader(new StringReader(String.join("\n", buildFile) + "\n")),
+                    "sub/build.gradle", writer));
+        }
+
+        final var diff = List.of(output.toString().split(System.lineSeparator()));
+        assertEquals(List.of(
+                "--- a/sub/build.gradle",
+                "+++ b/sub/build.gradle",
+                "@@ -2,7 +2,7 @@",
+                "     id 'java'",
+                " }",
+                " dependencies {",
+                "-    implementation 'org.junit:junit:4.13.2'",
+                "+    implementation(libs.junit)",
+                "     implementation project(':a')",
+                "     implementation project(':b')",
+                "     implementation project(':c')",
+                "@@ -9,6 +9,5 @@",
+                "     implementation project(':d')",
+                "     implementation project(':e')",
+                "     implementation project(':f')",
+                "-    implementation group: 'org.apache.kafka',",
+                "-        name: 'kafka', version: '3.3.1'",
+                "+    implementation(libs.kafka)",
+                " }"
+        ), diff);
+
+        final var rewritten = new StringWriter();
+        try (final var writer = new BufferedWriter(rewritten)) {
+            new RewriteEngine(REPLACERS).rewrite(new BufferedReader(new StringReader(String.join("\n", buildFile))), writer);
+        }
+        final var applied = UnifiedDiff.apply(buildFile, diff, false);
+        assertEquals(List.of(rewritten.toString().split(System.lineSeparator())), applied);
+        assertEquals(buildFile, UnifiedDiff.apply(applied, diff, true));
+    }
+
+    @Test
+    public void diffOfUnchangedFileIsEmpty() throws IOException {
+        final var output = new StringWriter();
+        try (final var writer = new BufferedWriter(output)) {
+            assertFalse(new RewriteEngine(REPLACERS).diff(new BufferedReader(new StringReader("dependencies {\n}")),
+                    "build.gradle", writer));
+        }
+        assertEquals("", output.toString());
+    }
+
+    @Test
+    public void diffMarksMissingNewlineAtEnd() throws IOException {
+        assertEquals(List.of(
+                "--- a/build.gradle",
+                "+++ b/build.gradle",
+                "@@ -1,2 +1,2 @@",
+                " dependencies {",
+                "-    implementation 'org.junit:junit:4.13.2' }",
+                "\\ No newline at end of file",
+                "+    implementation(libs.junit) }",
+                "\\ No newline at end of file"
+        ), diffOf("dependencies {\n    implementation 'org.junit:junit:4.13.2' }"));
+
+        final var diff = diffOf("dependencies {\n    implementation 'org.junit:junit:4.13.2'\n}");
+        assertEquals(List.of(
+                "--- a/build.gradle",
+                "+++ b/build.gradle",
+                "@@ -1,3 +1,3 @@",
+                " dependencies {",
+                "-    implementation 'org.junit:junit:4.13.2'",
+                "+    implementation(libs.junit)",
+                " }",
+                "\\ No newline at end of file"
+        ), diff);
+        assertEquals(List.of("dependencies {", "    implementation(libs.junit)", "}"),
+                UnifiedDiff.apply(List.of("dependencies {", "    implementation 'org.junit:junit:4.13.2'", "}"), diff, false));
+
+        // a file that ends with a newline doesn't get the marker
+        assertFalse(diffOf("dependencies {\n    implementation 'org.junit:junit:4.13.2'\n}\n").contains("\\ No newline at end of file"));
+    }
+
+    private static List<String> diffOf(final String buildFile) throws IOException {
+        final var output = new StringWriter();
+        try (final var writer = new BufferedWriter(output)) {
+            new RewriteEngine(REPLACERS).diff(new BufferedReader(new StringReader(buildFile)), "build.gradle", writer);
+        }
+        return List.of(output.toString().split(System.lineSeparator()));
+    }
+
+    private static void assertRewrites(final Map<String, String> expectations) {
+        final var engine = new RewriteEngine(REPLACERS);
+        expectations.forEach((line, expected) -> assertEquals(expected, engine.rewrite(line)));
+    }
+
+    private static BuildGradleReplacer replacer(final String tomlId, final String group, final String name, final String version,
+                                                final String classifier) {
+        final var coordinates = new GVACoordinates(group, name, version).addClassifiers(Set.of());
+        return new BuildGradleReplacer(tomlId, new LibraryEntry(coordinates, null), classifier);
+    }
+}